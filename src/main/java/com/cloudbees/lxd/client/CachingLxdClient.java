@@ -0,0 +1,366 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.api.Container;
+import com.cloudbees.lxd.client.api.ContainerAction;
+import com.cloudbees.lxd.client.api.ContainerPut;
+import com.cloudbees.lxd.client.api.ETagged;
+import com.cloudbees.lxd.client.api.Image;
+import com.cloudbees.lxd.client.api.Network;
+import com.cloudbees.lxd.client.api.Operation;
+import com.cloudbees.lxd.client.api.Profile;
+import com.cloudbees.lxd.client.api.ProfilePut;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import okhttp3.HttpUrl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LXD client serving the containers, images, profiles and networks from an in-memory inventory instead of asking the
+ * daemon each time.
+ * <p>
+ * The inventory is kept up to date by:
+ * <ul>
+ *     <li>the operation events of the /1.0/events websocket, which name the resources each operation changes</li>
+ *     <li>the changes made through this client, which are visible as soon as they complete</li>
+ *     <li>background reloads every {@link Config#getInventoryReconcileInterval()}, catching the changes which don't
+ *     go through operations, such as profiles and networks changed by another client</li>
+ * </ul>
+ * A list older than {@link Config#getInventoryMaxStaleness()} is reloaded before being read, which bounds how stale
+ * reads can be when events are missed. Everything is invalidated when the websocket connects or disconnects.
+ * <p>
+ * The lists don't carry the ETag of their entries, the first {@code info()} of a resource after it was reloaded
+ * loads it on its own so that the returned object has an ETag to update it with, see {@link ETagged}.
+ * <p>
+ * The returned objects are shared between callers and must not be modified.
+ */
+public class CachingLxdClient extends LxdClient {
+    private static final long EVENTS_RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+
+    protected final Inventory<Container> containers;
+    protected final Inventory<Image> images;
+    protected final Inventory<Profile> profiles;
+    protected final Inventory<Network> networks;
+    private final Map<String, Inventory<?>> inventories = new HashMap<>();
+
+    private final CompositeDisposable subscriptions = new CompositeDisposable();
+
+    public CachingLxdClient(Config config) {
+        this(config, new RxOkHttpClientWrapper(config, responseParserFactory(config)), new RxWsClientWrapper(config));
+    }
+
+    /**
+     * Creates a client on top of the given transports, see {@link LxdClientFactory}.
+     * @param config the client configuration
+     * @param rxClient the HTTP transport
+     * @param rxWsClient the websocket transport
+     */
+    protected CachingLxdClient(Config config, RxOkHttpClientWrapper rxClient, RxWsClientWrapper rxWsClient) {
+        super(config, rxClient, rxWsClient);
+        this.containers = inventory("containers", Container::getName, super::containers, name -> super.container(name).info(), config);
+        this.images = inventory("images", Image::getFingerprint, super::images, fingerprint -> super.image(fingerprint).info(), config);
+        this.profiles = inventory("profiles", Profile::getName, super::profiles, name -> super.profile(name).info(), config);
+        this.networks = inventory("networks", Network::getName, super::networks, name -> super.network(name).info(), config);
+        listen(config);
+    }
+
+    private <T> Inventory<T> inventory(String kind, Function<T, String> keyOf, Callable<Single<List<T>>> loadAll,
+                                       Function<String, Maybe<T>> loadOne, Config config) {
+        Inventory<T> inventory = new Inventory<>(keyOf, loadAll, loadOne, TimeUnit.MILLISECONDS.toNanos(config.getInventoryMaxStaleness()));
+        inventories.put(kind, inventory);
+        return inventory;
+    }
+
+    private void listen(Config config) {
+        // events sent while the websocket isn't connected are lost
+        subscriptions.add(operationEvents.connected()
+            .subscribe(connected -> invalidateAll()));
+        subscriptions.add(operationEvents.operations(EVENTS_RETRY_DELAY, TimeUnit.MILLISECONDS)
+            .subscribe(this::invalidate, t -> logger.log(Level.WARNING, "Inventory events stopped", t)));
+
+        long interval = config.getInventoryReconcileInterval();
+        if (interval > 0) {
+            subscriptions.add(Observable.interval(interval, interval, TimeUnit.MILLISECONDS)
+                .concatMap(tick -> Completable.merge(Arrays.asList(containers.reconcile(), images.reconcile(), profiles.reconcile(), networks.reconcile()))
+                    .doOnError(t -> logger.log(Level.FINE, "Failed to reconcile the inventory", t))
+                    .onErrorComplete()
+                    .toObservable())
+                .subscribe());
+        }
+    }
+
+    /**
+     * Invalidates the resources an operation works on, such as /1.0/containers/foo.
+     * @param operation the operation
+     */
+    protected void invalidate(Operation operation) {
+        Map<String, List<String>> resources = operation.getResources();
+        if (resources == null || resources.isEmpty()) {
+            if (changesImages(operation)) {
+                images.invalidateAll();
+            }
+            return;
+        }
+        for (List<String> urls : resources.values()) {
+            for (String url : urls) {
+                HttpUrl resourceUrl = HttpUrl.parse(rxClient.rootApiUrl).resolve(url);
+                if (resourceUrl == null) {
+                    continue;
+                }
+                // "1.0", kind, name[, sub-resource...], decoded as names are escaped in URLs
+                List<String> segments = resourceUrl.pathSegments();
+                if (segments.size() >= 3) {
+                    Inventory<?> inventory = inventories.get(segments.get(1));
+                    if (inventory != null) {
+                        inventory.invalidate(segments.get(2));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean hasETag(ETagged resource) {
+        return resource.getETag() != null;
+    }
+
+    /**
+     * Invalidates the whole inventory, it is reloaded when next read.
+     */
+    public void invalidateAll() {
+        for (Inventory<?> inventory : inventories.values()) {
+            inventory.invalidateAll();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        subscriptions.dispose();
+        super.close();
+    }
+
+    @Override
+    public Single<List<Container>> containers() {
+        return containers.list();
+    }
+
+    @Override
+    public Flowable<Container> containersStream() {
+        return containers().toFlowable().flatMapIterable(list -> list);
+    }
+
+    @Override
+    public ContainerClient container(String name) {
+        return new CachingContainerClient(name);
+    }
+
+    @Override
+    public Single<List<Image>> images() {
+        return images.list();
+    }
+
+    @Override
+    public Flowable<Image> imagesStream() {
+        return images().toFlowable().flatMapIterable(list -> list);
+    }
+
+    @Override
+    public ImageClient image(String imageFingerprint) {
+        return new CachingImageClient(imageFingerprint);
+    }
+
+    @Override
+    public Single<List<Network>> networks() {
+        return networks.list();
+    }
+
+    @Override
+    public Flowable<Network> networksStream() {
+        return networks().toFlowable().flatMapIterable(list -> list);
+    }
+
+    @Override
+    public NetworkClient network(String name) {
+        return new CachingNetworkClient(name);
+    }
+
+    @Override
+    public Single<List<Profile>> profiles() {
+        return profiles.list();
+    }
+
+    @Override
+    public Flowable<Profile> profilesStream() {
+        return profiles().toFlowable().flatMapIterable(list -> list);
+    }
+
+    @Override
+    public ProfileClient profile(String name) {
+        return new CachingProfileClient(name);
+    }
+
+    public class CachingContainerClient extends ContainerClient {
+        CachingContainerClient(String containerName) {
+            super(containerName);
+        }
+
+        @Override
+        public Maybe<Container> info() {
+            return containers.get(containerName, CachingLxdClient::hasETag);
+        }
+
+        @Override
+        protected Completable action(ContainerAction action, int timeout, boolean force, boolean stateful) {
+            return super.action(action, timeout, force, stateful).doOnEvent(t -> containers.invalidate(containerName));
+        }
+
+        @Override
+        public Completable delete() {
+            return super.delete().doOnEvent(t -> containers.invalidate(containerName));
+        }
+
+        @Override
+        public Completable init(String imgremote, String image, ContainerPut containerSpec) {
+            return super.init(imgremote, image, containerSpec).doOnEvent(t -> containers.invalidate(containerName));
+        }
+
+        @Override
+        public Observable<Operation> initWithProgress(String imgremote, String image, ContainerPut containerSpec) {
+            return super.initWithProgress(imgremote, image, containerSpec).doOnTerminate(() -> containers.invalidate(containerName));
+        }
+
+        @Override
+        public Completable rename(String newName) {
+            return super.rename(newName).doOnEvent(t -> {
+                containers.invalidate(containerName);
+                containers.invalidate(newName);
+            });
+        }
+
+        @Override
+        public Completable update(ContainerPut containerSpec, String etag) {
+            return super.update(containerSpec, etag).doOnEvent(t -> containers.invalidate(containerName));
+        }
+    }
+
+    public class CachingImageClient extends ImageClient {
+        CachingImageClient(String imageFingerprint) {
+            super(imageFingerprint);
+        }
+
+        @Override
+        public Maybe<Image> info() {
+            return images.get(imageFingerprint, CachingLxdClient::hasETag);
+        }
+
+        @Override
+        public Completable delete() {
+            return super.delete().doOnEvent(t -> images.invalidate(imageFingerprint));
+        }
+    }
+
+    public class CachingNetworkClient extends NetworkClient {
+        CachingNetworkClient(String networkName) {
+            super(networkName);
+        }
+
+        @Override
+        public Maybe<Network> info() {
+            return networks.get(networkName, CachingLxdClient::hasETag);
+        }
+
+        @Override
+        public Completable create(HashMap<String, String> config) {
+            return super.create(config).doOnEvent(t -> networks.invalidate(networkName));
+        }
+
+        @Override
+        public Completable delete() {
+            return super.delete().doOnEvent(t -> networks.invalidate(networkName));
+        }
+
+        @Override
+        public Completable rename(String newName) {
+            return super.rename(newName).doOnEvent(t -> {
+                networks.invalidate(networkName);
+                networks.invalidate(newName);
+            });
+        }
+
+        @Override
+        public Completable update(HashMap<String, String> config, String etag) {
+            return super.update(config, etag).doOnEvent(t -> networks.invalidate(networkName));
+        }
+    }
+
+    public class CachingProfileClient extends ProfileClient {
+        CachingProfileClient(String profileName) {
+            super(profileName);
+        }
+
+        @Override
+        public Maybe<Profile> info() {
+            return profiles.get(profileName, CachingLxdClient::hasETag);
+        }
+
+        @Override
+        public Completable create(ProfilePut profileSpec) {
+            return super.create(profileSpec).doOnEvent(t -> profiles.invalidate(profileName));
+        }
+
+        @Override
+        public Completable delete() {
+            return super.delete().doOnEvent(t -> profiles.invalidate(profileName));
+        }
+
+        @Override
+        public Completable rename(String newName) {
+            return super.rename(newName).doOnEvent(t -> {
+                profiles.invalidate(profileName);
+                profiles.invalidate(newName);
+            });
+        }
+
+        @Override
+        public Completable update(ProfilePut profileSpec, String etag) {
+            return super.update(profileSpec, etag).doOnEvent(t -> profiles.invalidate(profileName));
+        }
+    }
+
+    private static final Logger logger = Logger.getLogger(CachingLxdClient.class.getName());
+}
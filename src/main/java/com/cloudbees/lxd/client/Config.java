@@ -31,8 +31,11 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class Config {
 
@@ -40,7 +43,65 @@ public class Config {
     private final String unixSocketPath;
     private final Map<String, Remote> remotes;
 
-    private HttpLoggingInterceptor.Level logLevel = HttpLoggingInterceptor.Level.BODY;
+    /** What is logged for each HTTP request, see {@link com.cloudbees.lxd.client.utils.LoggingInterceptor} */
+    private HttpLoggingInterceptor.Level logLevel = HttpLoggingInterceptor.Level.NONE;
+
+    /** Maximum number of body bytes logged per request and response */
+    private long logBodyLimit = 4096;
+
+    /** Rates at which requests are logged, by path prefix */
+    private final Map<String, Double> logSampling = new LinkedHashMap<>();
+
+    /** Maximum number of concurrent requests, see {@link okhttp3.Dispatcher#setMaxRequests(int)} */
+    private int maxRequests = 64;
+
+    /** Maximum number of concurrent requests to the LXD host. As a client talks to a single host, defaults to maxRequests */
+    private int maxRequestsPerHost = 64;
+
+    /** Maximum number of idle connections kept in the pool */
+    private int maxIdleConnections = 5;
+
+    /** How long idle connections are kept in the pool, in milliseconds */
+    private long keepAliveDuration = TimeUnit.MINUTES.toMillis(5);
+
+    /** Maximum number of concurrent long polling requests, which have their own dispatcher */
+    private int longPollMaxRequests = 64;
+
+    /** Read timeout of long polling requests, in milliseconds */
+    private long longPollReadTimeout = TimeUnit.SECONDS.toMillis(60);
+
+    /** Wait for operations using the /1.0/events websocket instead of polling each of them */
+    private boolean operationEvents = false;
+
+    /** Delay between two refreshes of in-flight operations when polling */
+    private long operationPollInterval = 500;
+
+    /** Maximum number of operations tracked together, operations above that limit are long polled one by one */
+    private int maxTrackedOperations = 1024;
+
+    /** Journal file recording in-flight operations, see {@link LxdClient#recoverOperations()} */
+    private Path operationJournal;
+
+    /** Size of the table used to share repeated string values of parsed responses, 0 to disable it */
+    private int stringCanonicalizationSize = 0;
+
+    /** Number of resources whose last ETag is remembered to send If-Match on writes, 0 to disable it */
+    private int etagTrackingSize = 0;
+
+    /** Share the response of in-flight GET requests with identical requests sent in the meantime */
+    private boolean requestCoalescing = false;
+
+    /** How long image alias resolutions are cached, in milliseconds, 0 to disable the cache */
+    private long aliasCacheTtl = 0;
+
+    /** How long the absence of an image alias is cached, in milliseconds */
+    private long aliasCacheNegativeTtl = 0;
+
+    /** Maximum age of the lists cached by {@link CachingLxdClient}, in milliseconds */
+    private long inventoryMaxStaleness = TimeUnit.MINUTES.toMillis(5);
+
+    /** Delay between two reloads of the lists cached by {@link CachingLxdClient}, in milliseconds */
+    private long inventoryReconcileInterval = TimeUnit.MINUTES.toMillis(1);
 
     /** PEM encoded bytes of the client's certificate.
      * If {@link Config#baseURL} indicates a Unix socket, the certificate and key bytes will not be used. */
@@ -98,6 +159,253 @@ public class Config {
         return logLevel;
     }
 
+    /**
+     * @param logLevel what to log for each HTTP request, {@link HttpLoggingInterceptor.Level#NONE} to disable logging
+     * @return this config
+     */
+    public Config withLogLevel(HttpLoggingInterceptor.Level logLevel) {
+        this.logLevel = logLevel;
+        return this;
+    }
+
+    public long getLogBodyLimit() {
+        return logBodyLimit;
+    }
+
+    /**
+     * @param logBodyLimit maximum number of body bytes logged per request and response, longer bodies are truncated
+     * @return this config
+     */
+    public Config withLogBodyLimit(long logBodyLimit) {
+        this.logBodyLimit = logBodyLimit;
+        return this;
+    }
+
+    public Map<String, Double> getLogSampling() {
+        return Collections.unmodifiableMap(logSampling);
+    }
+
+    /**
+     * Only log a fraction of the requests to an endpoint, such as the /1.0/operations polls
+     * @param pathPrefix prefix of the request paths, the longest matching prefix applies
+     * @param rate fraction of the requests logged, between 0 and 1
+     * @return this config
+     */
+    public Config withLogSampling(String pathPrefix, double rate) {
+        this.logSampling.put(pathPrefix, rate);
+        return this;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * Sizes the dispatcher of the HTTP client
+     * @param maxRequests maximum number of concurrent requests
+     * @param maxRequestsPerHost maximum number of concurrent requests to the LXD host
+     * @return this config
+     */
+    public Config withMaxRequests(int maxRequests, int maxRequestsPerHost) {
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public long getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    /**
+     * Sizes the connection pool of the HTTP client
+     * @param maxIdleConnections maximum number of idle connections kept in the pool
+     * @param keepAliveDuration how long idle connections are kept
+     * @param unit unit of keepAliveDuration
+     * @return this config
+     */
+    public Config withConnectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit unit) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveDuration = unit.toMillis(keepAliveDuration);
+        return this;
+    }
+
+    public int getLongPollMaxRequests() {
+        return longPollMaxRequests;
+    }
+
+    public long getLongPollReadTimeout() {
+        return longPollReadTimeout;
+    }
+
+    /**
+     * Sizes the lane used by long polling requests such as operation /wait, so that they can't starve other requests
+     * @param maxRequests maximum number of concurrent long polling requests
+     * @param readTimeout read timeout of long polling requests
+     * @param unit unit of readTimeout
+     * @return this config
+     */
+    public Config withLongPollLane(int maxRequests, long readTimeout, TimeUnit unit) {
+        this.longPollMaxRequests = maxRequests;
+        this.longPollReadTimeout = unit.toMillis(readTimeout);
+        return this;
+    }
+
+    public boolean useOperationEvents() {
+        return operationEvents;
+    }
+
+    /**
+     * Wait for operation completion by listening to the LXD events websocket instead of long polling each operation.
+     * Polling is still used when the websocket fails.
+     * @param operationEvents true to use the events websocket
+     * @return this config
+     */
+    public Config withOperationEvents(boolean operationEvents) {
+        this.operationEvents = operationEvents;
+        return this;
+    }
+
+    public long getOperationPollInterval() {
+        return operationPollInterval;
+    }
+
+    /**
+     * @param interval delay between two refreshes of in-flight operations
+     * @param unit unit of the interval
+     * @return this config
+     */
+    public Config withOperationPollInterval(long interval, TimeUnit unit) {
+        this.operationPollInterval = unit.toMillis(interval);
+        return this;
+    }
+
+    public int getMaxTrackedOperations() {
+        return maxTrackedOperations;
+    }
+
+    /**
+     * @param maxTrackedOperations maximum number of operations tracked together
+     * @return this config
+     */
+    public Config withMaxTrackedOperations(int maxTrackedOperations) {
+        this.maxTrackedOperations = maxTrackedOperations;
+        return this;
+    }
+
+    public Path getOperationJournal() {
+        return operationJournal;
+    }
+
+    /**
+     * Record in-flight operations in a journal, so that a client created after a JVM restart can reattach to them
+     * @param operationJournal path to the journal file or null to disable it
+     * @return this config
+     */
+    public Config withOperationJournal(Path operationJournal) {
+        this.operationJournal = operationJournal;
+        return this;
+    }
+
+    public int getStringCanonicalizationSize() {
+        return stringCanonicalizationSize;
+    }
+
+    /**
+     * Share a single instance of the string values repeated across responses, such as statuses, architectures,
+     * profile names or config values. Worth it when parsed listings are kept in memory.
+     * @param tableSize size of the canonicalization table, 0 to disable it
+     * @return this config
+     */
+    public Config withStringCanonicalization(int tableSize) {
+        this.stringCanonicalizationSize = tableSize;
+        return this;
+    }
+
+    public int getETagTrackingSize() {
+        return etagTrackingSize;
+    }
+
+    /**
+     * Remember the ETag of the resources read one by one, and send it as If-Match when the resource is next updated.
+     * An update then fails with a 412 {@link LxdClientException#getHttpStatus()} if the resource changed since it was
+     * read, instead of overwriting the change.
+     * @param maxResources number of resources whose ETag is remembered, the least recently read ones are forgotten
+     * @return this config
+     */
+    public Config withETagTracking(int maxResources) {
+        this.etagTrackingSize = maxResources;
+        return this;
+    }
+
+    public boolean useRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Send a single request when identical GET requests are sent concurrently, for instance by many threads reading
+     * the same container after a host reboot. The response body is then read in memory and parsed by each caller,
+     * including listings which are otherwise parsed as they are read.
+     * @param requestCoalescing true to coalesce identical GET requests
+     * @return this config
+     */
+    public Config withRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    public long getAliasCacheTtl() {
+        return aliasCacheTtl;
+    }
+
+    public long getAliasCacheNegativeTtl() {
+        return aliasCacheNegativeTtl;
+    }
+
+    /**
+     * Cache the resolutions of {@link LxdClient#alias(String)}. With {@link #withOperationEvents(boolean) operation
+     * events}, the cache is also cleared when images change.
+     * @param ttl how long an alias resolution is cached, 0 to disable the cache
+     * @param negativeTtl how long the absence of an alias is cached, 0 to not cache it
+     * @param unit unit of ttl and negativeTtl
+     * @return this config
+     */
+    public Config withAliasCache(long ttl, long negativeTtl, TimeUnit unit) {
+        this.aliasCacheTtl = unit.toMillis(ttl);
+        this.aliasCacheNegativeTtl = unit.toMillis(negativeTtl);
+        return this;
+    }
+
+    public long getInventoryMaxStaleness() {
+        return inventoryMaxStaleness;
+    }
+
+    public long getInventoryReconcileInterval() {
+        return inventoryReconcileInterval;
+    }
+
+    /**
+     * Bounds how stale the lists cached by {@link CachingLxdClient} can get when changes are missed, for instance
+     * profiles changed by another client. A list older than the maximum staleness is reloaded before being read.
+     * Keep the reconcile interval below it so that reads don't wait for the reload.
+     * @param maxStaleness maximum age of a cached list
+     * @param reconcileInterval delay between two background reloads of the cached lists, 0 to disable them
+     * @param unit unit of maxStaleness and reconcileInterval
+     * @return this config
+     */
+    public Config withInventoryCache(long maxStaleness, long reconcileInterval, TimeUnit unit) {
+        this.inventoryMaxStaleness = unit.toMillis(maxStaleness);
+        this.inventoryReconcileInterval = unit.toMillis(reconcileInterval);
+        return this;
+    }
+
     public Map<String, Remote> getRemotes() {
         return remotes;
     }
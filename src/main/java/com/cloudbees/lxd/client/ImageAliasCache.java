@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.api.ImageAliasesEntry;
+import io.reactivex.Maybe;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches image alias resolutions, including the aliases which don't exist, see {@link Config#withAliasCache}.
+ * Failed resolutions aren't cached.
+ */
+class ImageAliasCache {
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Incremented by each invalidation */
+    private final AtomicLong epoch = new AtomicLong();
+
+    ImageAliasCache(long ttlNanos, long negativeTtlNanos) {
+        this.ttlNanos = ttlNanos;
+        this.negativeTtlNanos = negativeTtlNanos;
+    }
+
+    /**
+     * @param aliasName the alias
+     * @param resolve resolves the alias against the daemon, empty if it doesn't exist
+     * @return the cached resolution if it didn't expire, otherwise the one of resolve
+     */
+    Maybe<ImageAliasesEntry> get(String aliasName, Maybe<ImageAliasesEntry> resolve) {
+        return Maybe.defer(() -> {
+            Entry entry = entries.get(aliasName);
+            if (entry != null && System.nanoTime() - entry.expiresAt < 0) {
+                return entry.alias != null ? Maybe.just(entry.alias) : Maybe.empty();
+            }
+            long resolvedEpoch = epoch.get();
+            return resolve
+                .doOnSuccess(alias -> put(aliasName, new Entry(alias, System.nanoTime() + ttlNanos), resolvedEpoch))
+                .doOnComplete(() -> {
+                    if (negativeTtlNanos > 0) {
+                        put(aliasName, new Entry(null, System.nanoTime() + negativeTtlNanos), resolvedEpoch);
+                    }
+                });
+        });
+    }
+
+    private void put(String aliasName, Entry entry, long resolvedEpoch) {
+        entries.put(aliasName, entry);
+        // an invalidation while resolving wins over the resolution
+        if (epoch.get() != resolvedEpoch) {
+            entries.remove(aliasName, entry);
+        }
+    }
+
+    void invalidateAll() {
+        epoch.incrementAndGet();
+        entries.clear();
+    }
+
+    private static class Entry {
+        /** null if the alias doesn't exist */
+        final ImageAliasesEntry alias;
+        /** See {@link System#nanoTime()} */
+        final long expiresAt;
+
+        Entry(ImageAliasesEntry alias, long expiresAt) {
+            this.alias = alias;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory copy of one kind of LXD resource, such as the containers, see {@link CachingLxdClient}.
+ * <p>
+ * Entries are reloaded when they are read after being invalidated: the invalidated entries one by one when there are
+ * a few of them, otherwise the whole list. The whole list is also reloaded once it is older than the maximum staleness.
+ * Concurrent reads share a single reload.
+ * <p>
+ * Entries of the list may miss details only sent for single resources, such as the ETag. Those are loaded on their
+ * own when asked for, and kept until the entry is reloaded.
+ */
+class Inventory<T> {
+    /** Above that many invalidated entries, reloading the whole list is cheaper */
+    private static final int MAX_PARTIAL_RELOAD = 16;
+
+    private final Function<T, String> keyOf;
+    private final Callable<Single<List<T>>> loadAll;
+    private final Function<String, Maybe<T>> loadOne;
+    private final long maxStalenessNanos;
+
+    /** Everything below is guarded by this */
+    private Snapshot<T> snapshot;
+    private boolean allInvalid;
+    private final Set<String> invalid = new HashSet<>();
+    private Single<Snapshot<T>> reload;
+
+    /**
+     * @param keyOf returns the name of an entry
+     * @param loadAll loads the whole list from the daemon
+     * @param loadOne loads a single entry from the daemon, empty if it doesn't exist anymore
+     * @param maxStalenessNanos maximum age of the whole list
+     */
+    Inventory(Function<T, String> keyOf, Callable<Single<List<T>>> loadAll, Function<String, Maybe<T>> loadOne, long maxStalenessNanos) {
+        this.keyOf = keyOf;
+        this.loadAll = loadAll;
+        this.loadOne = loadOne;
+        this.maxStalenessNanos = maxStalenessNanos;
+    }
+
+    /**
+     * @return all the entries, the list must not be modified
+     */
+    Single<List<T>> list() {
+        return Single.defer(this::current).map(s -> s.values);
+    }
+
+    /**
+     * @param key the name of the entry
+     * @param detailed tells whether an entry has the details the caller needs
+     * @return the entry, loaded on its own if the listed one isn't detailed, empty if it doesn't exist
+     */
+    Maybe<T> get(String key, Predicate<T> detailed) {
+        return Single.defer(this::current).flatMapMaybe(s -> {
+            T value = s.detailed.get(key);
+            if (value == null) {
+                value = s.byKey.get(key);
+            }
+            if (value == null) {
+                return Maybe.empty();
+            }
+            if (detailed.test(value)) {
+                return Maybe.just(value);
+            }
+            // an entry loaded after the snapshot was replaced is only kept by the discarded snapshot
+            return loadOne.apply(key).doOnSuccess(loaded -> s.detailed.put(key, loaded));
+        });
+    }
+
+    synchronized void invalidate(String key) {
+        // nothing to invalidate until a first load started
+        if (snapshot != null || reload != null) {
+            invalid.add(key);
+        }
+    }
+
+    synchronized void invalidateAll() {
+        allInvalid = true;
+    }
+
+    /**
+     * Reloads the whole list, if it was ever read
+     * @return a Completable completing once reloaded
+     */
+    Completable reconcile() {
+        synchronized (this) {
+            if (snapshot == null) {
+                return Completable.complete();
+            }
+            allInvalid = true;
+        }
+        return Single.defer(this::current).toCompletable();
+    }
+
+    private synchronized Single<Snapshot<T>> current() throws Exception {
+        if (reload != null) {
+            return reload;
+        }
+        long now = System.nanoTime();
+        boolean stale = snapshot == null || allInvalid || now - snapshot.loadedAt >= maxStalenessNanos;
+        if (!stale && invalid.isEmpty()) {
+            return Single.just(snapshot);
+        }
+
+        Single<Snapshot<T>> load;
+        if (stale || invalid.size() > MAX_PARTIAL_RELOAD) {
+            load = loadAll.call().map(values -> new Snapshot<>(values, keyOf, now));
+        } else {
+            Set<String> keys = new HashSet<>(invalid);
+            Snapshot<T> base = snapshot;
+            load = Flowable.fromIterable(keys)
+                .flatMap(key -> loadOne.apply(key).toFlowable())
+                .toList()
+                .map(found -> base.update(keys, found, keyOf));
+        }
+        allInvalid = false;
+        invalid.clear();
+
+        // invalidations received while reloading are kept for the next read
+        reload = load
+            .doOnSuccess(this::reloaded)
+            .doOnError(t -> reloadFailed())
+            .cache();
+        return reload;
+    }
+
+    private synchronized void reloaded(Snapshot<T> reloaded) {
+        snapshot = reloaded;
+        reload = null;
+    }
+
+    private synchronized void reloadFailed() {
+        allInvalid = true;
+        reload = null;
+    }
+
+    private static class Snapshot<T> {
+        final Map<String, T> byKey;
+        final List<T> values;
+        /** Entries loaded on their own, see {@link Inventory#get(String, Predicate)} */
+        final ConcurrentMap<String, T> detailed = new ConcurrentHashMap<>();
+        /** When the whole list was loaded, see {@link System#nanoTime()} */
+        final long loadedAt;
+
+        Snapshot(List<T> values, Function<T, String> keyOf, long loadedAt) {
+            Map<String, T> byKey = new LinkedHashMap<>();
+            for (T value : values) {
+                byKey.put(keyOf.apply(value), value);
+            }
+            this.byKey = byKey;
+            this.values = Collections.unmodifiableList(new ArrayList<>(byKey.values()));
+            this.loadedAt = loadedAt;
+        }
+
+        Snapshot(Map<String, T> byKey, long loadedAt) {
+            this.byKey = byKey;
+            this.values = Collections.unmodifiableList(new ArrayList<>(byKey.values()));
+            this.loadedAt = loadedAt;
+        }
+
+        Snapshot<T> update(Set<String> keys, List<T> found, Function<T, String> keyOf) {
+            Map<String, T> updated = new LinkedHashMap<>(byKey);
+            updated.keySet().removeAll(keys);
+            for (T value : found) {
+                updated.put(keyOf.apply(value), value);
+            }
+            Snapshot<T> snapshot = new Snapshot<>(updated, loadedAt);
+            snapshot.detailed.putAll(detailed);
+            snapshot.detailed.keySet().removeAll(keys);
+            return snapshot;
+        }
+    }
+}
@@ -28,6 +28,8 @@ import com.cloudbees.lxd.client.api.Container;
 import com.cloudbees.lxd.client.api.ContainerAction;
 import com.cloudbees.lxd.client.api.ContainerPut;
 import com.cloudbees.lxd.client.api.ContainerState;
+import com.cloudbees.lxd.client.api.ContainerView;
+import com.cloudbees.lxd.client.api.Event;
 import com.cloudbees.lxd.client.api.Image;
 import com.cloudbees.lxd.client.api.ImageAliasesEntry;
 import com.cloudbees.lxd.client.api.LxdResponse;
@@ -39,25 +41,34 @@ import com.cloudbees.lxd.client.api.ProfilePut;
 import com.cloudbees.lxd.client.api.ResponseType;
 import com.cloudbees.lxd.client.api.Server;
 import com.cloudbees.lxd.client.api.StatusCode;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.cloudbees.lxd.client.api.codec.LxdModule;
+import com.cloudbees.lxd.client.api.codec.Projection;
+import com.cloudbees.lxd.client.api.codec.StringCanonicalizer;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Okio;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 
@@ -69,26 +80,99 @@ public class LxdClient implements AutoCloseable {
     public static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=utf-8");
 
     protected static final ObjectMapper JSON_MAPPER = new ObjectMapper()
+        .registerModule(new LxdModule())
         .enable(DeserializationFeature.UNWRAP_SINGLE_VALUE_ARRAYS)
         .disable(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES)
         .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
+    protected static final LxdCodecs CODECS = new LxdCodecs(JSON_MAPPER);
+
     private static final String RECURSION_SUFFIX = "?recursion=1";
 
     protected final RxOkHttpClientWrapper rxClient;
     protected final RxWsClientWrapper rxWsClient;
+    protected final LxdEventStream operationEvents;
+    protected final OperationJournal operationJournal;
+    protected final OperationTracker operationTracker;
+    /** null if aliases aren't cached, see {@link Config#withAliasCache(long, long, TimeUnit)} */
+    protected final ImageAliasCache aliasCache;
+    /** See {@link #serverSnapshot()} */
+    protected final ServerSnapshot serverSnapshot;
+    /** Subscriptions keeping the caches up to date */
+    private final CompositeDisposable listeners = new CompositeDisposable();
 
     public LxdClient() {
         this(Config.localAccessConfig());
     }
 
     public LxdClient(Config config) {
-        this.rxClient = new RxOkHttpClientWrapper(config, new LxdResponseParser.Factory(JSON_MAPPER));
-        this.rxWsClient = new RxWsClientWrapper(config);
+        this(config, new RxOkHttpClientWrapper(config, responseParserFactory(config)), new RxWsClientWrapper(config));
+    }
+
+    /**
+     * Creates a client on top of the given transports, see {@link LxdClientFactory}.
+     * @param config the client configuration
+     * @param rxClient the HTTP transport
+     * @param rxWsClient the websocket transport
+     */
+    protected LxdClient(Config config, RxOkHttpClientWrapper rxClient, RxWsClientWrapper rxWsClient) {
+        this.rxClient = rxClient;
+        this.rxWsClient = rxWsClient;
+        this.operationEvents = new LxdEventStream(rxWsClient, JSON_MAPPER, Event.TYPE_OPERATION);
+        this.operationJournal = openOperationJournal(config);
+        this.operationTracker = new OperationTracker(rxClient, operationEvents, operationJournal);
+        this.aliasCache = config.getAliasCacheTtl() > 0 ? new ImageAliasCache(TimeUnit.MILLISECONDS.toNanos(config.getAliasCacheTtl()),
+            TimeUnit.MILLISECONDS.toNanos(config.getAliasCacheNegativeTtl())) : null;
+        if (aliasCache != null && config.useOperationEvents()) {
+            listeners.add(listenToImageOperations(aliasCache));
+        }
+        this.serverSnapshot = new ServerSnapshot(this::server, rxClient);
+        // doesn't open the websocket, only follows it when it is used
+        listeners.add(operationEvents.connected().skip(1).subscribe(connected -> serverSnapshot.invalidate()));
+    }
+
+    private Disposable listenToImageOperations(ImageAliasCache aliasCache) {
+        // updates sent while disconnected are lost
+        return Observable.<Object>merge(operationEvents.connected(), operationEvents.operations(5, TimeUnit.SECONDS).filter(LxdClient::changesImages))
+            .subscribe(update -> aliasCache.invalidateAll());
+    }
+
+    /**
+     * @param operation an operation
+     * @return true if the operation may create, change or delete an image
+     */
+    static boolean changesImages(Operation operation) {
+        Map<String, List<String>> resources = operation.getResources();
+        if (resources == null || resources.isEmpty()) {
+            // image downloads don't name the image they create
+            return operation.getStatusCode() != null && operation.getStatusCode().isFinal();
+        }
+        return resources.containsKey("images");
+    }
+
+    static LxdResponseParser.Factory responseParserFactory(Config config) {
+        int canonicalizationSize = config.getStringCanonicalizationSize();
+        return new LxdResponseParser.Factory(CODECS, canonicalizationSize > 0 ? new StringCanonicalizer(canonicalizationSize) : null);
+    }
+
+    private static OperationJournal openOperationJournal(Config config) {
+        if (config.getOperationJournal() == null) {
+            return null;
+        }
+        try {
+            return OperationJournal.open(config.getOperationJournal());
+        } catch (IOException e) {
+            throw new LxdClientException("Failed to open operation journal " + config.getOperationJournal(), e);
+        }
     }
 
     @Override
     public void close() throws Exception {
+        listeners.dispose();
+        operationTracker.close();
+        if (operationJournal != null) {
+            operationJournal.close();
+        }
         rxClient.close();
         rxWsClient.close();
     }
@@ -98,7 +182,24 @@ public class LxdClient implements AutoCloseable {
      */
     public Single<Server> server() {
         return rxClient.get("1.0").build()
-            .flatMap(rp -> rp.parseSyncSingle(new TypeReference<LxdResponse<Server>>() {}));
+            .flatMap(rp -> rp.parseSyncSingle(CODECS.server));
+    }
+
+    /**
+     * Same as {@link #server()}, but only fetched once per connection to the daemon. It is fetched again when the
+     * events websocket reconnects, or once a request failed to reach the daemon.
+     * @return Server configuration and environment information
+     */
+    public Single<Server> serverSnapshot() {
+        return serverSnapshot.server();
+    }
+
+    /**
+     * @param extension an API extension, such as {@link Server#EXTENSION_FILE_APPEND}
+     * @return whether the daemon supports the extension, according to {@link #serverSnapshot()}
+     */
+    public Single<Boolean> supports(String extension) {
+        return serverSnapshot.supports(extension);
     }
 
     /**
@@ -106,7 +207,37 @@ public class LxdClient implements AutoCloseable {
      */
     public Single<List<Container>> containers() {
         return rxClient.get("1.0/containers" + RECURSION_SUFFIX).build()
-            .flatMap(rp -> rp.parseSyncSingle(new TypeReference<LxdResponse<List<Container>>>() {}));
+            .flatMap(rp -> rp.parseSyncSingle(CODECS.containers));
+    }
+
+    /**
+     * Same as {@link #containers()} but emits each container as soon as it is parsed, without holding the whole list.
+     * @return Stream of existing containers
+     */
+    public Flowable<Container> containersStream() {
+        return rxClient.get("1.0/containers" + RECURSION_SUFFIX).build()
+            .flatMapPublisher(rp -> rp.parseSyncStream(Container.class));
+    }
+
+    /**
+     * Lists containers, only reading the projected properties. This is much cheaper than {@link #containers()} when
+     * only a few properties such as the name and status are needed.
+     * @param projection the properties to read, see {@link ContainerView#PROPERTIES}
+     * @return List of existing containers
+     */
+    public Single<List<ContainerView>> containers(Projection projection) {
+        return containersStream(projection).toList();
+    }
+
+    /**
+     * Same as {@link #containers(Projection)} but emits each container as soon as it is parsed.
+     * @param projection the properties to read, see {@link ContainerView#PROPERTIES}
+     * @return Stream of existing containers
+     */
+    public Flowable<ContainerView> containersStream(Projection projection) {
+        ObjectReader reader = CODECS.containerViews(projection);
+        return rxClient.get("1.0/containers" + RECURSION_SUFFIX).build()
+            .flatMapPublisher(rp -> rp.parseSyncStream(reader));
     }
 
     public ContainerClient container(String name) {
@@ -192,18 +323,87 @@ public class LxdClient implements AutoCloseable {
                     Completable stderrWs = rxWsClient.wsCall(stderrWsUrl, null, stderr);
 
                     return Completable.mergeArray(stdinWs, stdoutWs, stderrWs)
-                        .andThen(rxClient.get(format("%s/wait", response.getOperationUrl())).build())
-                        .flatMapMaybe(rp -> {
-                            Operation op = rp.parseOperation(ResponseType.SYNC, 200).getData();
-                            Object processExitCode = op.getMetadata().get("return");
-                            return Maybe.just((Integer) processExitCode);
+                        .andThen(operationTracker.finalState(response))
+                        .flatMapMaybe(op -> {
+                            Object processExitCode = op.getMetadata() != null ? op.getMetadata().get("return") : null;
+                            return processExitCode instanceof Number ? Maybe.just(((Number) processExitCode).intValue()) : Maybe.<Integer>empty();
                         });
                 });
         }
 
+        /**
+         * Runs a command without input, and writes its output once it completed. When the daemon supports
+         * {@link Server#EXTENSION_CONTAINER_EXEC_RECORDING}, the output is recorded by the daemon then fetched, which
+         * saves the three websockets of {@link #execute}. Otherwise this falls back to {@link #execute}.
+         * @param commands the command and its arguments
+         * @param environment the environment of the command
+         * @param stdout receives the standard output, may be null
+         * @param stderr receives the standard error, may be null
+         * @return the exit code of the command
+         */
+        public Maybe<Integer> executeBuffered(List<String> commands, Map<String, String> environment, OutputStream stdout, OutputStream stderr) {
+            return supports(Server.EXTENSION_CONTAINER_EXEC_RECORDING)
+                .flatMapMaybe(recording -> recording ?
+                    executeRecorded(commands, environment, stdout, stderr) :
+                    execute(commands, environment, null, stdout, stderr));
+        }
+
+        protected Maybe<Integer> executeRecorded(List<String> commands, Map<String, String> environment, OutputStream stdout, OutputStream stderr) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("command", commands);
+            body.put("environment", environment);
+            body.put("wait-for-websocket", false);
+            body.put("interactive", false);
+            body.put("record-output", true);
+
+            return rxClient.post(format("1.0/containers/%s/exec", containerName), json(body)).build()
+                .flatMap(rp -> Single.just(rp.parseOperation(ResponseType.ASYNC, 202)))
+                .flatMap(response -> operationTracker.finalState(response))
+                .flatMapMaybe(op -> {
+                    if (op.getStatusCode() != StatusCode.Success) {
+                        return Maybe.error(operationFailed("Failed to execute command", op));
+                    }
+                    Object output = op.getMetadata().get("output");
+                    Object processExitCode = op.getMetadata().get("return");
+                    Completable copy = output instanceof Map ? Completable.concatArray(
+                        copyLog(((Map<?, ?>) output).get("1"), stdout),
+                        copyLog(((Map<?, ?>) output).get("2"), stderr)) : Completable.complete();
+                    return copy.andThen(processExitCode instanceof Number ? Maybe.just(((Number) processExitCode).intValue()) : Maybe.<Integer>empty());
+                });
+        }
+
+        /**
+         * Copies then deletes a log file recorded by the daemon
+         */
+        private Completable copyLog(Object logUrlValue, OutputStream out) {
+            if (!(logUrlValue instanceof String)) {
+                return Completable.complete();
+            }
+            String logUrl = (String) logUrlValue;
+            Completable delete = rxClient.delete(logUrl).build()
+                .flatMapCompletable(rp -> {
+                    rp.response.close();
+                    return Completable.complete();
+                })
+                .onErrorComplete();
+            if (out == null) {
+                return delete;
+            }
+            return rxClient.get(logUrl).build()
+                .flatMapCompletable(rp -> {
+                    rp.assertHttpResponseCodes(rp.call, rp.response, 200);
+                    try (ResponseBody log = rp.response.body()) {
+                        log.source().readAll(Okio.sink(out));
+                        out.flush();
+                    }
+                    return Completable.complete();
+                })
+                .andThen(delete);
+        }
+
         public Maybe<Container> info() {
             return rxClient.get(format("1.0/containers/%s", containerName)).build()
-                .flatMapMaybe(rp -> rp.parseSyncMaybe(new TypeReference<LxdResponse<Container>>() {}));
+                .flatMapMaybe(rp -> rp.parseSyncMaybe(CODECS.container));
         }
 
         /**
@@ -214,6 +414,23 @@ public class LxdClient implements AutoCloseable {
          * @return
          */
         public Completable init(String imgremote, String image, ContainerPut containerSpec) {
+            return initOperation(imgremote, image, containerSpec)
+                .flatMapCompletable(o -> waitForCompletion(o));
+        }
+
+        /**
+         * Create a new container and stream the creation progress
+         * @param imgremote either null for the local LXD daemon or one of remote name defined in {@link Config#remotes}
+         * @param image
+         * @param containerSpec specification of this new container
+         * @return the states of the creation operation, with image download progress in their metadata
+         */
+        public Observable<Operation> initWithProgress(String imgremote, String image, ContainerPut containerSpec) {
+            return initOperation(imgremote, image, containerSpec)
+                .flatMapObservable(o -> watch(o));
+        }
+
+        protected Single<LxdResponse<Operation>> initOperation(String imgremote, String image, ContainerPut containerSpec) {
 
             Map<String, String> source = new HashMap<>();
             source.put("type", "image");
@@ -247,8 +464,7 @@ public class LxdClient implements AutoCloseable {
             }
 
             return rxClient.post(format("1.0/containers", containerName), json(body)).build()
-                .flatMap(rp -> Single.just(rp.parseOperation(ResponseType.ASYNC, 202)))
-                .flatMapCompletable(o -> waitForCompletion(o));
+                .flatMap(rp -> Single.just(rp.parseOperation(ResponseType.ASYNC, 202)));
         }
 
         public Maybe<InputStream> log(String fileName) {
@@ -286,7 +502,7 @@ public class LxdClient implements AutoCloseable {
 
         public Maybe<ContainerState> state() {
             return rxClient.get(format("1.0/containers/%s", containerName)).build()
-               .flatMapMaybe(rp -> rp.parseSyncMaybe(new TypeReference<LxdResponse<ContainerState>>() {}));
+               .flatMapMaybe(rp -> rp.parseSyncMaybe(CODECS.containerState));
         }
 
         /**
@@ -301,22 +517,54 @@ public class LxdClient implements AutoCloseable {
         }
 
         public Completable update(ContainerPut containerSpec) {
-            return rxClient.put(format("1.0/containers/%s", containerName), json(containerSpec)).build()
+            return update(containerSpec, null);
+        }
+
+        /**
+         * Updates the container if it wasn't changed since it was read
+         * @param containerSpec the container configuration
+         * @param etag {@link Container#getETag()} of the container read, null to use the last one read when
+         *             {@link Config#withETagTracking(int) tracking ETags}
+         * @return a Completable failing with a 412 status if the container changed
+         */
+        public Completable update(ContainerPut containerSpec, String etag) {
+            return rxClient.put(format("1.0/containers/%s", containerName), json(containerSpec)).ifMatch(etag).build()
                 .flatMapCompletable(rp -> rp.parseSyncOperation(200));
         }
 
         public Completable filePush(String targetPath, int gid, int uid, String mode, RequestBody body) {
+            return filePush(targetPath, gid, uid, mode, body, false);
+        }
+
+        /**
+         * Appends to a file, creating it if needed. Requires the {@link Server#EXTENSION_FILE_APPEND} extension.
+         * @param targetPath path of the file in the container
+         * @param gid owner group of a created file
+         * @param uid owner of a created file
+         * @param mode mode of a created file
+         * @param body the content to append
+         * @return a Completable failing if the daemon doesn't support appending
+         */
+        public Completable fileAppend(String targetPath, int gid, int uid, String mode, RequestBody body) {
+            return supports(Server.EXTENSION_FILE_APPEND)
+                .flatMapCompletable(supported -> supported ?
+                    filePush(targetPath, gid, uid, mode, body, true) :
+                    Completable.error(new LxdClientException("The LXD daemon doesn't support appending to files, it lacks the " + Server.EXTENSION_FILE_APPEND + " API extension")));
+        }
+
+        protected Completable filePush(String targetPath, int gid, int uid, String mode, RequestBody body, boolean append) {
             return rxClient
                 .post(urlBuilder -> urlBuilder
-                    .addPathSegment("1.0/containers").addPathSegment(containerName).addPathSegment("files")
+                    .addPathSegment("1.0").addPathSegment("containers").addPathSegment(containerName).addPathSegment("files")
                     .addEncodedQueryParameter("path", targetPath),
                     body)
                 .build(requestBuilder -> requestBuilder
                     .addHeader("X-LXD-type", "file")
                     .addHeader("X-LXD-mode", mode)
                     .addHeader("X-LXD-uid", String.valueOf(uid))
-                    .addHeader("X-LXD-gid", String.valueOf(gid)))
-                .flatMapCompletable(rp -> rp.parse(new TypeReference<LxdResponse<Void>>() {}, ResponseType.SYNC, 200) != null ?
+                    .addHeader("X-LXD-gid", String.valueOf(gid))
+                    .addHeader("X-LXD-write", append ? "append" : "overwrite"))
+                .flatMapCompletable(rp -> rp.parse(CODECS.empty, ResponseType.SYNC, 200) != null ?
                     Completable.complete() : Completable.error(new LxdClientException("")));
         }
 
@@ -327,7 +575,16 @@ public class LxdClient implements AutoCloseable {
 
     public Single<List<Image>> images() {
         return rxClient.get("1.0/images" + RECURSION_SUFFIX).build()
-            .flatMap(rp -> rp.parseSyncSingle(new TypeReference<LxdResponse<List<Image>>>(){}));
+            .flatMap(rp -> rp.parseSyncSingle(CODECS.images));
+    }
+
+    /**
+     * Same as {@link #images()} but emits each image as soon as it is parsed, without holding the whole list.
+     * @return Stream of existing images
+     */
+    public Flowable<Image> imagesStream() {
+        return rxClient.get("1.0/images" + RECURSION_SUFFIX).build()
+            .flatMapPublisher(rp -> rp.parseSyncStream(Image.class));
     }
 
     public ImageClient image(String imageFingerprint) {
@@ -343,19 +600,27 @@ public class LxdClient implements AutoCloseable {
 
         public Maybe<Image> info() {
             return rxClient.get(format("1.0/images/%s", imageFingerprint)).build()
-                .flatMapMaybe(rp -> rp.parseSyncMaybe(new TypeReference<LxdResponse<Image>>(){}));
+                .flatMapMaybe(rp -> rp.parseSyncMaybe(CODECS.image));
         }
 
         public Completable delete() {
-            return rxClient.delete(format("1.0/images/%s", imageFingerprint)).build()
+            Completable delete = rxClient.delete(format("1.0/images/%s", imageFingerprint)).build()
                 .flatMap(rp -> Single.just(rp.parseOperation(ResponseType.ASYNC, 202)))
                 .flatMapCompletable(o -> waitForCompletion(o));
+            // the aliases of the image are deleted with it
+            return aliasCache != null ? delete.doOnEvent(t -> aliasCache.invalidateAll()) : delete;
         }
     }
 
+    /**
+     * Resolves an image alias. The resolution is cached when {@link Config#withAliasCache(long, long, TimeUnit)}.
+     * @param aliasName the alias
+     * @return the alias, empty if it doesn't exist
+     */
     public Maybe<ImageAliasesEntry> alias(String aliasName) {
-        return rxClient.get(format("1.0/images/aliases/%s", aliasName)).build()
-            .flatMapMaybe(rp -> rp.parseSyncMaybe(new TypeReference<LxdResponse<ImageAliasesEntry>>(){}));
+        Maybe<ImageAliasesEntry> resolve = rxClient.get(format("1.0/images/aliases/%s", aliasName)).build()
+            .flatMapMaybe(rp -> rp.parseSyncMaybe(CODECS.imageAlias));
+        return aliasCache != null ? aliasCache.get(aliasName, resolve) : resolve;
     }
 
     /**
@@ -363,7 +628,16 @@ public class LxdClient implements AutoCloseable {
      */
     public Single<List<Network>> networks() {
         return rxClient.get("1.0/networks" + RECURSION_SUFFIX).build()
-            .flatMap(rp -> rp.parseSyncSingle(new TypeReference<LxdResponse<List<Network>>>() {}));
+            .flatMap(rp -> rp.parseSyncSingle(CODECS.networks));
+    }
+
+    /**
+     * Same as {@link #networks()} but emits each network as soon as it is parsed, without holding the whole list.
+     * @return Stream of existing networks
+     */
+    public Flowable<Network> networksStream() {
+        return rxClient.get("1.0/networks" + RECURSION_SUFFIX).build()
+            .flatMapPublisher(rp -> rp.parseSyncStream(Network.class));
     }
 
     public NetworkClient network(String name) {
@@ -406,7 +680,7 @@ public class LxdClient implements AutoCloseable {
          */
         public Maybe<Network> info() {
             return rxClient.get(format("1.0/networks/%s", networkName)).build()
-                .flatMapMaybe(rp -> rp.parseSyncMaybe(new TypeReference<LxdResponse<Network>>() {}));
+                .flatMapMaybe(rp -> rp.parseSyncMaybe(CODECS.network));
         }
 
         /**
@@ -428,12 +702,23 @@ public class LxdClient implements AutoCloseable {
          * @return
          */
         public Completable update(HashMap<String, String> config) {
+            return update(config, null);
+        }
+
+        /**
+         * Updates the network if it wasn't changed since it was read
+         * @param config the network configuration
+         * @param etag {@link Network#getETag()} of the network read, null to use the last one read when
+         *             {@link Config#withETagTracking(int) tracking ETags}
+         * @return a Completable failing with a 412 status if the network changed
+         */
+        public Completable update(HashMap<String, String> config, String etag) {
             Network network = new Network();
             network.setName(networkName);
             network.setConfig(config);
             network.setManaged(true);
 
-            return rxClient.put(format("1.0/networks/%s", networkName), json(network)).build()
+            return rxClient.put(format("1.0/networks/%s", networkName), json(network)).ifMatch(etag).build()
                 .flatMapCompletable(rp -> rp.parseSyncOperation(200));
         }
     }
@@ -444,7 +729,16 @@ public class LxdClient implements AutoCloseable {
      */
     public Single<List<Profile>> profiles() {
         return rxClient.get("1.0/profiles" + RECURSION_SUFFIX).build()
-            .flatMap(rp -> rp.parseSyncSingle(new TypeReference<LxdResponse<List<Profile>>>() {}));
+            .flatMap(rp -> rp.parseSyncSingle(CODECS.profiles));
+    }
+
+    /**
+     * Same as {@link #profiles()} but emits each profile as soon as it is parsed, without holding the whole list.
+     * @return Stream of existing profiles
+     */
+    public Flowable<Profile> profilesStream() {
+        return rxClient.get("1.0/profiles" + RECURSION_SUFFIX).build()
+            .flatMapPublisher(rp -> rp.parseSyncStream(Profile.class));
     }
 
     public ProfileClient profile(String name) {
@@ -484,7 +778,7 @@ public class LxdClient implements AutoCloseable {
          */
         public Maybe<Profile> info() {
             return rxClient.get(format("1.0/profiles/%s", profileName)).build()
-                .flatMapMaybe(rp -> rp.parseSyncMaybe(new TypeReference<LxdResponse<Profile>>() {}));
+                .flatMapMaybe(rp -> rp.parseSyncMaybe(CODECS.profile));
         }
 
         /**
@@ -506,36 +800,60 @@ public class LxdClient implements AutoCloseable {
          * @return
          */
         public Completable update(ProfilePut profileSpec) {
-            return rxClient.put(format("1.0/profiles/%s", profileName), json(profileSpec)).build()
+            return update(profileSpec, null);
+        }
+
+        /**
+         * Updates the profile if it wasn't changed since it was read
+         * @param profileSpec the profile configuration
+         * @param etag {@link Profile#getETag()} of the profile read, null to use the last one read when
+         *             {@link Config#withETagTracking(int) tracking ETags}
+         * @return a Completable failing with a 412 status if the profile changed
+         */
+        public Completable update(ProfilePut profileSpec, String etag) {
+            return rxClient.put(format("1.0/profiles/%s", profileName), json(profileSpec)).ifMatch(etag).build()
                 .flatMapCompletable(rp -> rp.parseSyncOperation(200));
         }
     }
 
     /**
-     * Polls LXD for operation completion
+     * Waits for operation completion. The operation is tracked by the {@link OperationTracker} of this client.
      * @param operationResponse
-     * @return a stream of Operations
+     * @return a Completable completing when the operation succeeds
      */
     public Completable waitForCompletion(LxdResponse<Operation> operationResponse) {
-        /*
-           As explained in https://www.stgraber.org/2016/04/18/lxd-api-direct-interaction/
-          "data about past operations disappears 5 seconds after they’re done."
+        return operationTracker.finalState(operationResponse)
+            .flatMapCompletable(operation -> operation.getStatusCode() == StatusCode.Success ? Completable.complete() : Completable.error(operationFailed("Failed to complete", operation)));
+    }
 
-          https://medium.com/@v.danylo/server-polling-and-retrying-failed-operations-with-retrofit-and-rxjava-8bcc7e641a5a#.9ji4311wi
-         */
-        return rxClient.get(format("%s/wait?timeout=1", operationResponse.getOperationUrl())).build()
-            .flatMapObservable(rp -> Observable.just(rp.parseOperation(ResponseType.SYNC, 200).getData()))
-            .repeat()
-            .takeUntil(operation -> operation.getStatusCode() != StatusCode.Running)
-            .lastOrError()
-            .flatMapCompletable(operation -> operation.getStatusCode() == StatusCode.Success ? Completable.complete() : Completable.error(new LxdClientException("Failed to complete")));
+    /**
+     * @return the exception for an operation which didn't succeed, see {@link LxdClientException#getOperationId()}
+     */
+    private static LxdClientException operationFailed(String message, Operation operation) {
+        return new LxdClientException(format("%s: operation %s %s: %s", message, operation.getId(), operation.getStatusCode(), operation.getErr()),
+            null, null, null, null, null, null, operation.getId());
+    }
+
+    /**
+     * Reattaches to operations recorded in the journal by a previous client, see {@link Config#withOperationJournal}.
+     * It costs a single listing of LXD operations.
+     * @return responses of operations LXD still knows about, to be used with {@link #waitForCompletion} or {@link #watch}
+     */
+    public Observable<LxdResponse<Operation>> recoverOperations() {
+        return operationTracker.recover();
+    }
+
+    /**
+     * Streams the states of an operation while it runs, for instance to report image download progress found in
+     * its metadata.
+     * @param operationResponse
+     * @return the operation states, completing after the final state
+     */
+    public Observable<Operation> watch(LxdResponse<Operation> operationResponse) {
+        return operationTracker.watch(operationResponse);
     }
 
     protected RequestBody json(Object resource) {
-        try {
-            return RequestBody.create(MEDIA_TYPE_JSON, JSON_MAPPER.writeValueAsString(resource));
-        } catch (JsonProcessingException e) {
-            throw new LxdClientException(e);
-        }
+        return CODECS.json(resource);
     }
 }
@@ -25,16 +25,98 @@
 package com.cloudbees.lxd.client;
 
 public class LxdClientException extends RuntimeException {
+    private final String method;
+    private final String url;
+    private final Integer httpStatus;
+    private final Integer errorCode;
+    private final String body;
+    private final String operationId;
+
     public LxdClientException(Throwable throwable) {
-        super(throwable);
+        this(throwable != null ? throwable.toString() : null, throwable, null, null, null, null, null);
     }
 
     public LxdClientException(String message) {
-        super(message);
+        this(message, null, null, null, null, null, null);
     }
 
     public LxdClientException(String message, Throwable t) {
+        this(message, t, null, null, null, null, null);
+    }
+
+    /**
+     * @param message the message
+     * @param t the cause, may be null
+     * @param method HTTP method of the failed request
+     * @param url URL of the failed request
+     * @param httpStatus HTTP status of the response
+     * @param errorCode error code found in a LXD error response
+     * @param body start of the response body, bounded in size
+     */
+    public LxdClientException(String message, Throwable t, String method, String url, Integer httpStatus, Integer errorCode, String body) {
+        this(message, t, method, url, httpStatus, errorCode, body, null);
+    }
+
+    /**
+     * @param message the message
+     * @param t the cause, may be null
+     * @param method HTTP method of the failed request
+     * @param url URL of the failed request
+     * @param httpStatus HTTP status of the response
+     * @param errorCode error code found in a LXD error response
+     * @param body start of the response body, bounded in size
+     * @param operationId id of the LXD operation which failed
+     */
+    public LxdClientException(String message, Throwable t, String method, String url, Integer httpStatus, Integer errorCode, String body, String operationId) {
         super(message, t);
+        this.method = method;
+        this.url = url;
+        this.httpStatus = httpStatus;
+        this.errorCode = errorCode;
+        this.body = body;
+        this.operationId = operationId;
+    }
+
+    /**
+     * @return HTTP method of the failed request, or null if the failure isn't tied to a request
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return URL of the failed request, or null if the failure isn't tied to a request
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return HTTP status of the response, or null if no response was received
+     */
+    public Integer getHttpStatus() {
+        return httpStatus;
+    }
+
+    /**
+     * @return error code of a LXD error response, or null
+     */
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return start of the response body, at most a few KiB, or null if it wasn't captured
+     */
+    public String getBody() {
+        return body;
     }
 
+    /**
+     * LXD doesn't identify requests, failures of asynchronous requests are identified by their operation instead.
+     * @return id of the LXD operation which failed, as in /1.0/operations/&lt;id&gt;, or null if there is none
+     */
+    public String getOperationId() {
+        return operationId;
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.utils.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates {@link LxdClient}s sharing a single set of dispatchers, connection pool and threads, so that talking to many
+ * LXD hosts doesn't cost a thread pool and a connection pool per host.
+ *
+ * The request limits of the factory apply to all its clients together, the per host limit to each LXD host. The
+ * dispatcher and connection pool settings of the {@link Config} given to {@link #newClient(Config)} are ignored.
+ * Clients created by the factory don't release the shared resources when closed, the factory does.
+ *
+ * Clients using a unix socket all address the daemon as localhost, and OkHttp doesn't tell their connections apart.
+ * Each socket path therefore gets its own connection pool and dispatchers, still running on the shared threads.
+ */
+public class LxdClientFactory implements AutoCloseable {
+
+    private final ExecutorService executorService;
+    private final int maxRequestsPerHost;
+    private final int maxIdleConnections;
+    private final long keepAliveDuration;
+    private final TimeUnit keepAliveUnit;
+    private final Transport sharedTransport;
+    /** Transports of the unix socket clients, by socket path */
+    private final ConcurrentMap<String, Transport> unixTransports = new ConcurrentHashMap<>();
+
+    public LxdClientFactory() {
+        this(256, 64, 64, 5, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param maxRequests the maximum number of concurrent requests, for all hosts
+     * @param maxRequestsPerHost the maximum number of concurrent requests to a single host
+     * @param maxIdleConnections the maximum number of idle connections kept, for all hosts or for a unix socket
+     * @param keepAliveDuration how long an idle connection is kept
+     * @param unit the unit of keepAliveDuration
+     */
+    public LxdClientFactory(int maxRequests, int maxRequestsPerHost, int maxIdleConnections, long keepAliveDuration, TimeUnit unit) {
+        // same as the OkHttp default executor, but shared by all the dispatchers
+        this.executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new DaemonThreadFactory());
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveDuration = keepAliveDuration;
+        this.keepAliveUnit = unit;
+        this.sharedTransport = new Transport(maxRequests, maxRequestsPerHost, maxIdleConnections);
+    }
+
+    /**
+     * @param config the configuration of the LXD host
+     * @return a client for the LXD host, using the resources of this factory
+     */
+    public LxdClient newClient(Config config) {
+        return new LxdClient(config, newRxClient(config), newRxWsClient(config));
+    }
+
+    /**
+     * @param config the configuration of the LXD host
+     * @return a client caching the LXD host inventory, using the resources of this factory
+     */
+    public CachingLxdClient newCachingClient(Config config) {
+        return new CachingLxdClient(config, newRxClient(config), newRxWsClient(config));
+    }
+
+    protected RxOkHttpClientWrapper newRxClient(Config config) {
+        Transport transport = transport(config);
+        OkHttpClient client = HttpUtils.createHttpClient(config, HttpUtils.createHttpClientBuilder(config, transport.client));
+        OkHttpClient longPollClient = HttpUtils.createLongPollHttpClient(config, client, transport.longPollDispatcher);
+        return new RxOkHttpClientWrapper(config, LxdClient.responseParserFactory(config), client, longPollClient, true);
+    }
+
+    protected RxWsClientWrapper newRxWsClient(Config config) {
+        OkHttpClient client = HttpUtils.createWsClient(config, HttpUtils.createHttpClientBuilder(config, transport(config).wsClient));
+        return new RxWsClientWrapper(config, client, executorService, true);
+    }
+
+    private Transport transport(Config config) {
+        if (!config.useUnixTransport()) {
+            return sharedTransport;
+        }
+        // a socket is a single host, its limits are the per host ones
+        return unixTransports.computeIfAbsent(config.getUnixSocketPath(),
+            path -> new Transport(maxRequestsPerHost, maxRequestsPerHost, maxIdleConnections));
+    }
+
+    /**
+     * Releases the shared resources. Clients created by this factory can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        sharedTransport.client.connectionPool().evictAll();
+        for (Transport transport : unixTransports.values()) {
+            transport.client.connectionPool().evictAll();
+        }
+        executorService.shutdown();
+    }
+
+    /**
+     * A connection pool and the dispatchers for regular, long polling and websocket calls, running on the factory threads.
+     */
+    private class Transport {
+        private final OkHttpClient client;
+        private final Dispatcher longPollDispatcher;
+        private final OkHttpClient wsClient;
+
+        Transport(int maxRequests, int maxRequestsPerHost, int maxIdleConnections) {
+            Dispatcher dispatcher = new Dispatcher(executorService);
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            this.longPollDispatcher = new Dispatcher(executorService);
+            longPollDispatcher.setMaxRequests(maxRequests);
+            longPollDispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveDuration, keepAliveUnit))
+                .build();
+
+            // websockets hold a dispatcher slot for as long as they are open, don't let them starve requests
+            Dispatcher wsDispatcher = new Dispatcher(executorService);
+            wsDispatcher.setMaxRequests(Integer.MAX_VALUE);
+            wsDispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+            this.wsClient = client.newBuilder().dispatcher(wsDispatcher).build();
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "LXD Client " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
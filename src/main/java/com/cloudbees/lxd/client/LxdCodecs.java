@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.api.Container;
+import com.cloudbees.lxd.client.api.ContainerState;
+import com.cloudbees.lxd.client.api.ContainerView;
+import com.cloudbees.lxd.client.api.Image;
+import com.cloudbees.lxd.client.api.ImageAliasesEntry;
+import com.cloudbees.lxd.client.api.LxdResponse;
+import com.cloudbees.lxd.client.api.Network;
+import com.cloudbees.lxd.client.api.Operation;
+import com.cloudbees.lxd.client.api.Profile;
+import com.cloudbees.lxd.client.api.Server;
+import com.cloudbees.lxd.client.api.codec.Projection;
+import com.cloudbees.lxd.client.api.codec.StringCanonicalizer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Readers and writers resolved once from an {@link ObjectMapper}, so that API calls don't resolve types on each
+ * request.
+ */
+public class LxdCodecs {
+
+    protected final ObjectMapper mapper;
+    protected final ObjectWriter writer;
+    private final ConcurrentMap<Type, ResponseReader<?>> responseReaders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /** Reader of responses whose metadata is ignored. Not bound to Void, which Jackson can't instantiate on JDK 16+ */
+    public final ResponseReader<JsonNode> empty;
+    public final ResponseReader<Server> server;
+    public final ResponseReader<Operation> operation;
+    public final ResponseReader<Map<String, List<Operation>>> operations;
+    public final ResponseReader<Container> container;
+    public final ResponseReader<List<Container>> containers;
+    public final ResponseReader<ContainerState> containerState;
+    public final ResponseReader<Image> image;
+    public final ResponseReader<List<Image>> images;
+    public final ResponseReader<ImageAliasesEntry> imageAlias;
+    public final ResponseReader<Network> network;
+    public final ResponseReader<List<Network>> networks;
+    public final ResponseReader<Profile> profile;
+    public final ResponseReader<List<Profile>> profiles;
+
+    public LxdCodecs(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.writer = mapper.writer();
+        this.empty = responseReader(new TypeReference<LxdResponse<JsonNode>>() {});
+        this.server = responseReader(new TypeReference<LxdResponse<Server>>() {});
+        this.operation = responseReader(new TypeReference<LxdResponse<Operation>>() {});
+        this.operations = responseReader(new TypeReference<LxdResponse<Map<String, List<Operation>>>>() {});
+        this.container = responseReader(new TypeReference<LxdResponse<Container>>() {});
+        this.containers = responseReader(new TypeReference<LxdResponse<List<Container>>>() {});
+        this.containerState = responseReader(new TypeReference<LxdResponse<ContainerState>>() {});
+        this.image = responseReader(new TypeReference<LxdResponse<Image>>() {});
+        this.images = responseReader(new TypeReference<LxdResponse<List<Image>>>() {});
+        this.imageAlias = responseReader(new TypeReference<LxdResponse<ImageAliasesEntry>>() {});
+        this.network = responseReader(new TypeReference<LxdResponse<Network>>() {});
+        this.networks = responseReader(new TypeReference<LxdResponse<List<Network>>>() {});
+        this.profile = responseReader(new TypeReference<LxdResponse<Profile>>() {});
+        this.profiles = responseReader(new TypeReference<LxdResponse<List<Profile>>>() {});
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * @param typeReference the response type
+     * @return the reader for this response type, resolved on first use
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseReader<T> responseReader(TypeReference<LxdResponse<T>> typeReference) {
+        return (ResponseReader<T>) responseReaders.computeIfAbsent(typeReference.getType(),
+            type -> new ResponseReader<>(mapper.readerFor(mapper.getTypeFactory().constructType(type))));
+    }
+
+    /**
+     * @param type a plain type, such as a list element
+     * @return the reader for this type, resolved on first use
+     */
+    public ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    /**
+     * @param projection the properties to read
+     * @return a reader of {@link ContainerView}s skipping the properties which are not projected
+     */
+    public ObjectReader containerViews(Projection projection) {
+        return reader(ContainerView.class).withAttribute(Projection.class, projection.checkProperties(ContainerView.PROPERTIES));
+    }
+
+    /**
+     * Serializes a request body without going through an intermediate String.
+     * @param resource the request body
+     * @return the JSON request body
+     */
+    public RequestBody json(Object resource) {
+        Buffer buffer = new Buffer();
+        try {
+            writer.writeValue(buffer.outputStream(), resource);
+        } catch (IOException e) {
+            throw new LxdClientException(e);
+        }
+        return RequestBody.create(LxdClient.MEDIA_TYPE_JSON, buffer.readByteString());
+    }
+
+    /**
+     * A reader for a {@link LxdResponse} holding a given type of data.
+     * @param <T> the type of data
+     */
+    public static final class ResponseReader<T> {
+        private final ObjectReader reader;
+
+        ResponseReader(ObjectReader reader) {
+            this.reader = reader;
+        }
+
+        public LxdResponse<T> read(InputStream in) throws IOException {
+            return reader.readValue(in);
+        }
+
+        public LxdResponse<T> read(InputStream in, StringCanonicalizer canonicalizer) throws IOException {
+            if (canonicalizer == null) {
+                return reader.readValue(in);
+            }
+            return reader.withAttribute(StringCanonicalizer.class, canonicalizer).readValue(in);
+        }
+    }
+}
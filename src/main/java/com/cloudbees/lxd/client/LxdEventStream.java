@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.api.Event;
+import com.cloudbees.lxd.client.api.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.subjects.BehaviorSubject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shares a single connection to the LXD /1.0/events websocket between all its subscribers. The websocket is opened
+ * on first subscription and closed when the last subscriber goes away.
+ */
+public class LxdEventStream {
+    protected final ObjectMapper mapper;
+    protected final Observable<Event> events;
+    protected final BehaviorSubject<Boolean> connected = BehaviorSubject.createDefault(false);
+
+    /**
+     * @param rxWsClient the websocket client
+     * @param mapper mapper used to decode events
+     * @param types comma separated list of event types to listen to, see {@link Event#TYPE_OPERATION}
+     */
+    public LxdEventStream(RxWsClientWrapper rxWsClient, ObjectMapper mapper, String types) {
+        this.mapper = mapper;
+        this.events = rxWsClient.wsTextStream("1.0/events?type=" + types, () -> connected.onNext(true))
+            .map(text -> mapper.readValue(text, Event.class))
+            .doFinally(() -> connected.onNext(false))
+            .share();
+    }
+
+    /**
+     * @return a hot stream of events. It errors out when the websocket fails.
+     */
+    public Observable<Event> events() {
+        return events;
+    }
+
+    /**
+     * @return a hot stream of operation updates
+     */
+    public Observable<Operation> operations() {
+        return events
+            .filter(event -> Event.TYPE_OPERATION.equals(event.getType()) && event.getMetadata() != null)
+            .map(event -> mapper.convertValue(event.getMetadata(), Operation.class));
+    }
+
+    /**
+     * Same as {@link #operations()}, but reconnects after a delay instead of erroring out when the websocket fails.
+     * Updates sent while disconnected are lost, see {@link #connected()}.
+     * @param retryDelay delay before reconnecting
+     * @param unit unit of retryDelay
+     * @return a hot stream of operation updates
+     */
+    public Observable<Operation> operations(long retryDelay, TimeUnit unit) {
+        return operations()
+            .retryWhen(errors -> errors
+                .doOnNext(t -> logger.log(Level.FINE, "Events websocket failed, reconnecting", t))
+                .flatMap(t -> Observable.timer(retryDelay, unit)));
+    }
+
+    /**
+     * @return the state of the websocket connection, starting with the current one
+     */
+    public Observable<Boolean> connected() {
+        return connected.distinctUntilChanged();
+    }
+
+    /**
+     * Events sent before the websocket is connected are lost: this lets subscribers fetch the current state of what
+     * they are watching once nothing can be missed anymore.
+     * @return a Completable completing once the websocket is connected
+     */
+    public Completable whenConnected() {
+        return connected.filter(c -> c).firstOrError().toCompletable();
+    }
+
+    private static final Logger logger = Logger.getLogger(LxdEventStream.class.getName());
+}
@@ -24,17 +24,30 @@
 
 package com.cloudbees.lxd.client;
 
+import com.cloudbees.lxd.client.api.ETagged;
 import com.cloudbees.lxd.client.api.LxdResponse;
 import com.cloudbees.lxd.client.api.Operation;
 import com.cloudbees.lxd.client.api.ResponseType;
+import com.cloudbees.lxd.client.api.codec.StringCanonicalizer;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.reactivex.Completable;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
 import okhttp3.Call;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
 
 import java.io.IOException;
 
@@ -43,47 +56,188 @@ import java.io.IOException;
  * the REST API.
  */
 public class LxdResponseParser {
+    /** Number of bytes of the response body kept for error messages */
+    static final int ERROR_BODY_PREFIX_SIZE = 4096;
+
     protected final Call call;
     protected final Response response;
     protected final ObjectMapper mapper;
+    protected final LxdCodecs codecs;
+    protected final StringCanonicalizer canonicalizer;
+
+    public LxdResponseParser(LxdCodecs codecs, Call call, Response response) {
+        this(codecs, null, call, response);
+    }
 
-    public LxdResponseParser(ObjectMapper mapper, Call call, Response response) {
-        this.mapper = mapper;
+    /**
+     * @param canonicalizer canonicalizer of the string values, null to disable canonicalization
+     */
+    public LxdResponseParser(LxdCodecs codecs, StringCanonicalizer canonicalizer, Call call, Response response) {
+        this.codecs = codecs;
+        this.canonicalizer = canonicalizer;
+        this.mapper = codecs.getMapper();
         this.call = call;
         this.response = response;
     }
 
     public <T> Maybe<T> parseSyncMaybe(TypeReference<LxdResponse<T>> typeReference) {
-        LxdResponse<T> response = parse(typeReference, ResponseType.SYNC, 200, 404);
+        return parseSyncMaybe(codecs.responseReader(typeReference));
+    }
+
+    public <T> Maybe<T> parseSyncMaybe(LxdCodecs.ResponseReader<T> reader) {
+        LxdResponse<T> response = parse(reader, ResponseType.SYNC, 200, 404);
         return response != null ? Maybe.just(response.getData()) : Maybe.empty();
     }
 
     public <T> Single<T> parseSyncSingle(TypeReference<LxdResponse<T>> typeReference) {
-        return Single.just(parse(typeReference, ResponseType.SYNC, 200).getData());
+        return parseSyncSingle(codecs.responseReader(typeReference));
+    }
+
+    public <T> Single<T> parseSyncSingle(LxdCodecs.ResponseReader<T> reader) {
+        return Single.just(parse(reader, ResponseType.SYNC, 200).getData());
+    }
+
+    /**
+     * Emits the elements of a sync response holding a list, as they are parsed from the body. The body is read as
+     * elements are requested and closed when the stream terminates or is cancelled.
+     * @param elementType the type of the list elements
+     * @return the list elements
+     */
+    public <T> Flowable<T> parseSyncStream(Class<T> elementType) {
+        return parseSyncStream(codecs.reader(elementType));
+    }
+
+    /**
+     * Same as {@link #parseSyncStream(Class)}, binding elements with the given reader.
+     * @param elementReader the reader of the list elements
+     * @return the list elements
+     */
+    public <T> Flowable<T> parseSyncStream(ObjectReader reader) {
+        ObjectReader elementReader = canonicalizer != null ? reader.withAttribute(StringCanonicalizer.class, canonicalizer) : reader;
+        assertHttpResponseCodes(call, response, 200);
+        PrefixCapturingSource body = new PrefixCapturingSource(response.body().source(), ERROR_BODY_PREFIX_SIZE);
+
+        return Flowable.generate(
+            () -> openMetadataArray(body),
+            (JsonParser parser, Emitter<T> emitter) -> {
+                try {
+                    JsonToken token;
+                    do {
+                        token = parser.nextToken();
+                    } while (token == JsonToken.VALUE_NULL);
+
+                    if (token == null || token == JsonToken.END_ARRAY) {
+                        emitter.onComplete();
+                    } else {
+                        emitter.onNext(elementReader.readValue(parser));
+                    }
+                } catch (IOException e) {
+                    emitter.onError(new LxdExceptionBuilder(call.request(), response).with(response, body.prefix()).with(e).build());
+                }
+                return parser;
+            },
+            parser -> {
+                parser.close();
+                response.body().close();
+            });
+    }
+
+    /**
+     * Reads the response envelope up to the start of the metadata array. A parser positioned on a null metadata is
+     * returned closed.
+     */
+    private JsonParser openMetadataArray(PrefixCapturingSource body) {
+        JsonParser parser = null;
+        try {
+            parser = mapper.getFactory().createParser(Okio.buffer(body).inputStream());
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+
+            LxdResponse<Void> envelope = new LxdResponse<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "type":
+                        envelope.setType(codecs.reader(ResponseType.class).readValue(parser));
+                        break;
+                    case "error_code":
+                        envelope.setErrorCode(parser.getValueAsInt());
+                        break;
+                    case "error":
+                        envelope.setError(parser.getValueAsString());
+                        break;
+                    case "metadata":
+                        if (envelope.getType() == ResponseType.ERROR) {
+                            throw new LxdExceptionBuilder(call.request(), response).with(envelope).build();
+                        }
+                        if (envelope.getType() != null && envelope.getType() != ResponseType.SYNC) {
+                            throw new LxdExceptionBuilder(call.request(), response).withMessage(String.format("got bad response type, expected %s got %s", ResponseType.SYNC, envelope.getType())).build();
+                        }
+                        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                            parser.close();
+                        } else if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+                            throw new JsonParseException(parser, "Expected an array as metadata");
+                        }
+                        return parser;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            throw new JsonParseException(parser, "No metadata in response");
+        } catch (IOException e) {
+            close(parser);
+            throw new LxdExceptionBuilder(call.request(), response).with(response, body.prefix()).with(e).build();
+        } catch (RuntimeException e) {
+            close(parser);
+            throw e;
+        }
+    }
+
+    private void close(JsonParser parser) {
+        try {
+            if (parser != null) {
+                parser.close();
+            }
+        } catch (IOException e) {
+            // the body is closed below anyway
+        }
+        response.body().close();
     }
 
     public Completable parseSyncOperation(int expectedHttpStatusCode) {
-         parse(new TypeReference<LxdResponse<Void>>() {}, ResponseType.SYNC, false, expectedHttpStatusCode);
+         parse(codecs.empty, ResponseType.SYNC, false, expectedHttpStatusCode);
          return Completable.complete();
     }
 
     public LxdResponse<Operation> parseOperation(ResponseType expectedResponseType, int... expectedHttpStatusCodes) {
-        return parse(new TypeReference<LxdResponse<Operation>>() {}, expectedResponseType, expectedHttpStatusCodes);
+        return parse(codecs.operation, expectedResponseType, expectedHttpStatusCodes);
     }
 
     public <T> LxdResponse<T> parse(TypeReference<LxdResponse<T>> typeReference, ResponseType expectedResponseType, int... expectedHttpStatusCodes) {
-        return parse(typeReference, expectedResponseType, true, expectedHttpStatusCodes);
+        return parse(codecs.responseReader(typeReference), expectedResponseType, true, expectedHttpStatusCodes);
+    }
+
+    public <T> LxdResponse<T> parse(LxdCodecs.ResponseReader<T> reader, ResponseType expectedResponseType, int... expectedHttpStatusCodes) {
+        return parse(reader, expectedResponseType, true, expectedHttpStatusCodes);
     }
 
     public <T> LxdResponse<T> parse(TypeReference<LxdResponse<T>> typeReference, ResponseType expectedResponseType, boolean returnNullOnKnownError, int... expectedHttpStatusCodes) {
+        return parse(codecs.responseReader(typeReference), expectedResponseType, returnNullOnKnownError, expectedHttpStatusCodes);
+    }
+
+    public <T> LxdResponse<T> parse(LxdCodecs.ResponseReader<T> reader, ResponseType expectedResponseType, boolean returnNullOnKnownError, int... expectedHttpStatusCodes) {
         assertHttpResponseCodes(call, response, expectedHttpStatusCodes);
         LxdResponse<T> lxdResponse = null;
+        // parse straight from the socket, only keeping the start of the body to report what went wrong
+        PrefixCapturingSource body = new PrefixCapturingSource(response.body().source(), ERROR_BODY_PREFIX_SIZE);
         try {
-            // we do not use a stream here to get the jsonBody dumped by Jackson when something goes wrong
-            String body = response.body().string();
-            lxdResponse = mapper.readValue(body, typeReference);
+            lxdResponse = reader.read(Okio.buffer(body).inputStream(), canonicalizer);
         } catch (IOException e) {
-            throw new LxdExceptionBuilder(call.request()).with(response).with(e).build();
+            throw new LxdExceptionBuilder(call.request(), response).with(response, body.prefix()).with(e).build();
+        } finally {
+            response.body().close();
         }
         if (lxdResponse.getType() == null || ResponseType.ERROR == lxdResponse.getType()) {
             for(int expectedStatusCode: expectedHttpStatusCodes) {
@@ -91,14 +245,21 @@ public class LxdResponseParser {
                     if (returnNullOnKnownError) {
                         return null;
                     } else {
-                        throw new LxdExceptionBuilder(call.request()).with(lxdResponse).build();
+                        throw new LxdExceptionBuilder(call.request(), response).with(lxdResponse).build();
                     }
                 }
             }
-            throw new LxdExceptionBuilder(call.request()).with(lxdResponse).build();
+            throw new LxdExceptionBuilder(call.request(), response).with(lxdResponse).build();
         }
         if (expectedResponseType != null && lxdResponse.getType() != expectedResponseType) {
-            throw new LxdExceptionBuilder(call.request()).withMessage(String.format("got bad response type, expected %s got %s", expectedResponseType, lxdResponse.getType())).build();
+            throw new LxdExceptionBuilder(call.request(), response).withMessage(String.format("got bad response type, expected %s got %s", expectedResponseType, lxdResponse.getType())).build();
+        }
+        String etag = response.header("ETag");
+        if (etag != null) {
+            lxdResponse.setETag(etag);
+            if (lxdResponse.getData() instanceof ETagged) {
+                ((ETagged) lxdResponse.getData()).setETag(etag);
+            }
         }
         return lxdResponse;
     }
@@ -111,37 +272,68 @@ public class LxdResponseParser {
                     return;
                 }
             }
-            throw new LxdExceptionBuilder(call.request()).with(response).build();
+            LxdClientException exception = new LxdExceptionBuilder(call.request(), response).with(response).build();
+            response.close();
+            throw exception;
         }
     }
 
     static class LxdExceptionBuilder {
         final StringBuilder sb = new StringBuilder();
+        final String method;
+        final String url;
+        final Integer httpStatus;
+        Integer errorCode;
+        String body;
+        String operationId;
         Throwable throwable;
 
-        LxdExceptionBuilder(Request request) {
+        LxdExceptionBuilder(Request request, Response response) {
+            this.method = request.method();
+            this.url = request.url().toString();
+            this.httpStatus = response != null ? response.code() : null;
             init(request);
         }
 
         void init(Request request) {
-            sb.append("Failure executing: ").append(request.method())
-                .append(" at: ").append(request.url()).append(".");
+            sb.append("Failure executing: ").append(method)
+                .append(" at: ").append(url).append(".");
         }
 
+        /**
+         * Adds the start of a body which hasn't been read, without consuming it.
+         */
         LxdExceptionBuilder with(Response response) {
-            sb.append(" Status:").append(response.code()).append(".")
-                .append(" Message: ").append(response.message()).append(".");
+            String bodyPrefix;
             try {
-                String body = response.body().string();
-                sb.append(" Body: ").append(body);
+                ResponseBody peeked = response.peekBody(ERROR_BODY_PREFIX_SIZE + 1);
+                Buffer buffer = new Buffer();
+                buffer.writeAll(peeked.source());
+                boolean truncated = buffer.size() > ERROR_BODY_PREFIX_SIZE;
+                // may cut a code point, readUtf8 replaces it
+                bodyPrefix = buffer.readUtf8(Math.min(buffer.size(), ERROR_BODY_PREFIX_SIZE)) + (truncated ? "..." : "");
             } catch (Throwable t) {
-                sb.append(" Body: <unreadable>");
+                bodyPrefix = "<unreadable>";
             }
 
+            return with(response, bodyPrefix);
+        }
+
+        LxdExceptionBuilder with(Response response, String bodyPrefix) {
+            this.body = bodyPrefix;
+            sb.append(" Status:").append(response.code()).append(".")
+                .append(" Message: ").append(response.message()).append(".")
+                .append(" Body: ").append(bodyPrefix);
+
             return this;
         }
 
         LxdExceptionBuilder with(LxdResponse lxdResponse) {
+            this.errorCode = lxdResponse.getErrorCode();
+            String operationUrl = lxdResponse.getOperationUrl();
+            if (operationUrl != null && !operationUrl.isEmpty()) {
+                this.operationId = operationUrl.substring(operationUrl.lastIndexOf('/') + 1);
+            }
             sb.append(" Status:").append(lxdResponse.getErrorCode())
                 .append(" Message: ").append(lxdResponse.getError()).append(".");
 
@@ -161,19 +353,65 @@ public class LxdResponseParser {
         }
 
         public LxdClientException build() {
-            return throwable == null ? new LxdClientException(sb.toString()) : new LxdClientException(sb.toString(), throwable);
+            return new LxdClientException(sb.toString(), throwable, method, url, httpStatus, errorCode, body, operationId);
+        }
+    }
+
+    /**
+     * Keeps a copy of the first bytes read from a source.
+     */
+    static class PrefixCapturingSource extends ForwardingSource {
+        final Buffer prefix = new Buffer();
+        final long maxPrefixSize;
+        boolean truncated;
+
+        PrefixCapturingSource(Source delegate, long maxPrefixSize) {
+            super(delegate);
+            this.maxPrefixSize = maxPrefixSize;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                long captured = Math.min(read, maxPrefixSize - prefix.size());
+                if (captured > 0) {
+                    sink.copyTo(prefix, sink.size() - read, captured);
+                }
+                truncated |= captured < read;
+            }
+            return read;
+        }
+
+        String prefix() {
+            // the prefix may end in the middle of a code point, readUtf8 replaces it
+            return prefix.clone().readUtf8() + (truncated ? "..." : "");
         }
     }
 
     public static class Factory {
-        final ObjectMapper mapper;
+        final LxdCodecs codecs;
+        final StringCanonicalizer canonicalizer;
 
         public Factory(ObjectMapper mapper) {
-            this.mapper = mapper;
+            this(new LxdCodecs(mapper));
+        }
+
+        public Factory(LxdCodecs codecs) {
+            this(codecs, null);
+        }
+
+        /**
+         * @param codecs the codecs
+         * @param canonicalizer canonicalizer shared by the parsed responses, null to disable canonicalization
+         */
+        public Factory(LxdCodecs codecs, StringCanonicalizer canonicalizer) {
+            this.codecs = codecs;
+            this.canonicalizer = canonicalizer;
         }
 
         public LxdResponseParser build(Call call, Response response) {
-            return new LxdResponseParser(mapper, call, response);
+            return new LxdResponseParser(codecs, canonicalizer, call, response);
         }
     }
 }
@@ -0,0 +1,244 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only, memory-mapped journal of in-flight operations. It lets a new client reattach to operations started
+ * by a previous JVM, see {@link LxdClient#recoverOperations()}.
+ *
+ * Each record is a kind byte followed by the length and the UTF-8 bytes of its payload. The kind byte is written
+ * last, so a record torn by a crash reads as the end of the journal. Records are forced to the storage device as they
+ * are appended, so they survive a crash of the machine and not only of the JVM.
+ *
+ * The file is compacted into a new file when it is full. The JVM only unmaps a file once its buffer is garbage
+ * collected, so the mappings of replaced files linger until then. As a compaction only happens once the file is full,
+ * this costs at most one stale mapping per file's worth of records.
+ */
+public class OperationJournal implements AutoCloseable {
+    static final int INITIAL_SIZE = 64 * 1024;
+
+    private static final byte END = 0;
+    private static final byte STARTED = 1;
+    private static final byte FINISHED = 2;
+    private static final char SEPARATOR = '\n';
+
+    private final Path path;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    private OperationJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens a journal, creating it if needed
+     * @param path path to the journal file
+     * @return the journal, with operations left pending by previous clients
+     * @throws IOException if the journal can't be read or written
+     */
+    public static OperationJournal open(Path path) throws IOException {
+        OperationJournal journal = new OperationJournal(path);
+        if (Files.exists(path)) {
+            journal.map(path, Files.size(path));
+            journal.replay();
+        }
+        // start from a journal holding only pending operations
+        journal.compact(0);
+        return journal;
+    }
+
+    /**
+     * Records a started operation. Does nothing once the journal is closed.
+     * @param id operation id
+     * @param operationUrl operation URL
+     * @param resource resources the operation works on
+     */
+    public synchronized void started(String id, String operationUrl, String resource) {
+        if (buffer == null) {
+            return;
+        }
+        Entry entry = new Entry(id, operationUrl, resource);
+        if (pending.putIfAbsent(id, entry) == null) {
+            append(STARTED, entry.encode());
+        }
+    }
+
+    /**
+     * Records an operation as finished, or abandoned. Does nothing once the journal is closed, the operation then
+     * stays pending for the next client.
+     * @param id operation id
+     */
+    public synchronized void finished(String id) {
+        if (buffer == null) {
+            return;
+        }
+        if (pending.remove(id) != null) {
+            append(FINISHED, id);
+        }
+    }
+
+    /**
+     * @return operations started but not finished yet
+     */
+    public synchronized List<Entry> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void map(Path file, long size) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void replay() {
+        while (buffer.remaining() > 5) {
+            int start = buffer.position();
+            byte kind = buffer.get();
+            int length = buffer.getInt();
+            if (kind == END || length < 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                return;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            String payload = new String(bytes, StandardCharsets.UTF_8);
+
+            if (kind == STARTED) {
+                Entry entry = Entry.decode(payload);
+                pending.put(entry.id, entry);
+            } else if (kind == FINISHED) {
+                pending.remove(payload);
+            }
+        }
+    }
+
+    private void append(byte kind, String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        // keep room for the end marker
+        if (buffer.remaining() < bytes.length + 6) {
+            try {
+                compact(bytes.length + 6);
+            } catch (IOException e) {
+                throw new LxdClientException("Failed to compact operation journal " + path, e);
+            }
+        }
+
+        int start = buffer.position();
+        buffer.position(start + 1);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        buffer.put(start, kind);
+        buffer.force();
+    }
+
+    /**
+     * Rewrites the journal with pending operations only, growing it if needed
+     */
+    private void compact(int extra) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long used = 0;
+        for (Entry entry : pending.values()) {
+            byte[] bytes = entry.encode().getBytes(StandardCharsets.UTF_8);
+            records.add(bytes);
+            used += bytes.length + 5;
+        }
+
+        long size = INITIAL_SIZE;
+        while (size < 2 * (used + extra + 1)) {
+            size *= 2;
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        map(tmp, size);
+        for (byte[] bytes : records) {
+            buffer.put(STARTED).putInt(bytes.length).put(bytes);
+        }
+        // the records must be on disk before the new file replaces the old one
+        buffer.force();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * An operation recorded in the journal
+     */
+    public static class Entry {
+        private final String id;
+        private final String operationUrl;
+        private final String resource;
+
+        public Entry(String id, String operationUrl, String resource) {
+            this.id = id;
+            this.operationUrl = operationUrl;
+            this.resource = resource != null ? resource : "";
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getOperationUrl() {
+            return operationUrl;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        String encode() {
+            return id + SEPARATOR + operationUrl + SEPARATOR + resource;
+        }
+
+        static Entry decode(String payload) {
+            String[] parts = payload.split(String.valueOf(SEPARATOR), 3);
+            return new Entry(parts[0], parts[1], parts.length > 2 ? parts[2] : "");
+        }
+    }
+}
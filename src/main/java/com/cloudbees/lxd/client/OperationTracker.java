@@ -0,0 +1,400 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.api.LxdResponse;
+import com.cloudbees.lxd.client.api.Operation;
+import com.cloudbees.lxd.client.api.ResponseType;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * Tracks in-flight LXD operations of a client. Instead of long polling each operation, the state of all tracked
+ * operations is refreshed with a single /1.0/operations request per tick, or pushed by the events websocket when
+ * {@link Config#useOperationEvents()}. Updates are then fanned out to subscribers of each operation.
+ */
+public class OperationTracker implements AutoCloseable {
+    private static final int RECENTLY_FINISHED_SIZE = 256;
+
+    protected final RxOkHttpClientWrapper rxClient;
+    protected final LxdEventStream operationEvents;
+    protected final OperationJournal journal;
+    protected final int maxInFlight;
+    protected final long pollIntervalMillis;
+
+    protected final ConcurrentMap<String, TrackedOperation> inFlight = new ConcurrentHashMap<>();
+
+    /** Final states received from events for operations which were not tracked yet */
+    protected final Map<String, Operation> recentlyFinished = Collections.synchronizedMap(new LinkedHashMap<String, Operation>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Operation> eldest) {
+            return size() > RECENTLY_FINISHED_SIZE;
+        }
+    });
+
+    /** Subscription to operation updates, only active while operations are tracked. Guarded by this. */
+    private Disposable updates;
+
+    /**
+     * @param rxClient the HTTP client
+     * @param operationEvents the shared events stream
+     * @param journal journal recording in-flight operations or null
+     */
+    public OperationTracker(RxOkHttpClientWrapper rxClient, LxdEventStream operationEvents, OperationJournal journal) {
+        this.rxClient = rxClient;
+        this.operationEvents = operationEvents;
+        this.journal = journal;
+        this.maxInFlight = rxClient.getConfig().getMaxTrackedOperations();
+        this.pollIntervalMillis = rxClient.getConfig().getOperationPollInterval();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (updates != null) {
+            updates.dispose();
+            updates = null;
+        }
+    }
+
+    /**
+     * @param operationResponse an async operation response
+     * @return the operation once it reached a final state
+     */
+    public Single<Operation> finalState(LxdResponse<Operation> operationResponse) {
+        return watch(operationResponse).lastOrError();
+    }
+
+    /**
+     * Streams the states of an operation, including metadata updates such as image download progress. States are
+     * de-duplicated on their update date and status.
+     * @param operationResponse an async operation response
+     * @return the operation states, completing after the final state
+     */
+    public Observable<Operation> watch(LxdResponse<Operation> operationResponse) {
+        return Observable.defer(() -> {
+            if (operationResponse.getData().getStatusCode().isFinal()) {
+                return Observable.just(operationResponse.getData());
+            }
+
+            TrackedOperation tracked = acquire(operationResponse);
+            // when too many operations are in flight, don't let the table grow
+            Observable<Operation> states = tracked == null ?
+                longPoll(operationResponse)
+                    .doOnSubscribe(d -> journalStarted(operationResponse))
+                    .doFinally(() -> journalFinished(operationResponse.getData().getId())) :
+                tracked.updates.doFinally(() -> release(tracked));
+
+            AtomicReference<Operation> lastState = new AtomicReference<>(operationResponse.getData());
+            return states
+                .doOnNext(lastState::set)
+                .distinctUntilChanged((previous, current) ->
+                    Objects.equals(previous.getUpdatedAtInstant(), current.getUpdatedAtInstant()) && previous.getStatusCode() == current.getStatusCode())
+                .takeUntil((Operation operation) -> operation.getStatusCode().isFinal())
+                .doOnDispose(() -> cancelIfAbandoned(operationResponse, lastState.get(), tracked));
+        });
+    }
+
+    /**
+     * Cancels an operation on the LXD side when nobody waits for it anymore, so that abandoned work stops consuming
+     * host resources. Only operations reporting may_cancel are cancelled.
+     */
+    protected void cancelIfAbandoned(LxdResponse<Operation> operationResponse, Operation lastState, TrackedOperation tracked) {
+        if (lastState.getStatusCode().isFinal() || !Boolean.parseBoolean(lastState.getMayCancel())) {
+            return;
+        }
+        synchronized (this) {
+            // the subscriber being disposed is released afterwards
+            if (tracked != null && tracked.subscribers > 1) {
+                return;
+            }
+        }
+
+        rxClient.delete(operationResponse.getOperationUrl()).build()
+            .flatMapCompletable(rp -> rp.parseSyncOperation(200))
+            .subscribe(
+                () -> logger.log(Level.FINE, "Cancelled operation {0}", operationResponse.getOperationUrl()),
+                t -> logger.log(Level.FINE, "Failed to cancel operation " + operationResponse.getOperationUrl(), t));
+    }
+
+    protected synchronized TrackedOperation acquire(LxdResponse<Operation> operationResponse) {
+        String id = operationResponse.getData().getId();
+        if (inFlight.size() >= maxInFlight && !inFlight.containsKey(id)) {
+            return null;
+        }
+
+        TrackedOperation tracked = inFlight.get(id);
+        if (tracked == null) {
+            tracked = new TrackedOperation(operationResponse);
+            inFlight.put(id, tracked);
+            journalStarted(operationResponse);
+        }
+        tracked.subscribers++;
+
+        Operation finished = recentlyFinished.remove(id);
+        if (finished != null) {
+            update(tracked, finished);
+        }
+
+        if (updates == null) {
+            updates = subscribeToUpdates();
+        }
+        return tracked;
+    }
+
+    protected synchronized void release(TrackedOperation tracked) {
+        if (--tracked.subscribers == 0) {
+            forget(tracked);
+        }
+        if (inFlight.isEmpty() && updates != null) {
+            updates.dispose();
+            updates = null;
+        }
+    }
+
+    protected Disposable subscribeToUpdates() {
+        Observable<Operation> polling = Observable.interval(pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS)
+            .concatMap(tick -> refresh());
+
+        Observable<Operation> source = polling;
+        if (rxClient.getConfig().useOperationEvents()) {
+            source = Observable.merge(
+                    operationEvents.operations().doOnNext(this::rememberIfUntracked),
+                    // events sent before the websocket was connected are lost, refresh everything once connected
+                    operationEvents.whenConnected().andThen(refresh()))
+                .onErrorResumeNext(polling)
+                .concatWith(polling);
+        }
+
+        return source.subscribe(
+            operation -> dispatch(operation),
+            t -> logger.log(Level.WARNING, "Operation tracking stopped", t));
+    }
+
+    /**
+     * Lists all operations with a single request. Tracked operations missing from the list are fetched one by one.
+     * @return the operations, errors are swallowed so that polling goes on
+     */
+    protected Observable<Operation> refresh() {
+        return listOperations()
+            .flatMapObservable(listed -> {
+                Set<String> listedIds = new HashSet<>();
+                for (Operation operation : listed) {
+                    listedIds.add(operation.getId());
+                }
+
+                List<TrackedOperation> missing = new ArrayList<>();
+                for (TrackedOperation tracked : inFlight.values()) {
+                    if (!listedIds.contains(tracked.id)) {
+                        missing.add(tracked);
+                    }
+                }
+
+                return Observable.fromIterable(listed)
+                    .concatWith(Observable.fromIterable(missing).concatMap(this::fetch));
+            })
+            .onErrorResumeNext(t -> {
+                logger.log(Level.FINE, "Failed to list operations", t);
+                return Observable.empty();
+            });
+    }
+
+    /**
+     * @return all operations known by LXD, whatever their status
+     */
+    protected Single<List<Operation>> listOperations() {
+        return rxClient.get("1.0/operations?recursion=1").build()
+            .map(rp -> {
+                Map<String, List<Operation>> operationsByStatus = rp.parse(rp.codecs.operations, ResponseType.SYNC, 200).getData();
+
+                List<Operation> listed = new ArrayList<>();
+                if (operationsByStatus != null) {
+                    for (List<Operation> operations : operationsByStatus.values()) {
+                        if (operations != null) {
+                            listed.addAll(operations);
+                        }
+                    }
+                }
+                return listed;
+            });
+    }
+
+    protected Observable<Operation> fetch(TrackedOperation tracked) {
+        return rxClient.get(tracked.operationUrl).build()
+            .flatMapObservable(rp -> {
+                LxdResponse<Operation> response = rp.parseOperation(ResponseType.SYNC, 200, 404);
+                if (response == null) {
+                    forget(tracked);
+                    tracked.updates.onError(new LxdClientException(format("Operation %s not found", tracked.operationUrl)));
+                    return Observable.<Operation>empty();
+                }
+                return Observable.just(response.getData());
+            })
+            .onErrorResumeNext(t -> {
+                logger.log(Level.FINE, "Failed to fetch operation " + tracked.operationUrl, t);
+                return Observable.empty();
+            });
+    }
+
+    protected void dispatch(Operation operation) {
+        TrackedOperation tracked = inFlight.get(operation.getId());
+        if (tracked != null) {
+            update(tracked, operation);
+        }
+    }
+
+    protected void forget(TrackedOperation tracked) {
+        if (inFlight.remove(tracked.id, tracked)) {
+            journalFinished(tracked.id);
+        }
+    }
+
+    protected void journalStarted(LxdResponse<Operation> operationResponse) {
+        if (journal != null) {
+            Map<String, List<String>> resources = operationResponse.getData().getResources();
+            List<String> urls = new ArrayList<>();
+            if (resources != null) {
+                for (List<String> resourceUrls : resources.values()) {
+                    urls.addAll(resourceUrls);
+                }
+            }
+            journal.started(operationResponse.getData().getId(), operationResponse.getOperationUrl(), String.join(",", urls));
+        }
+    }
+
+    protected void journalFinished(String id) {
+        if (journal != null) {
+            journal.finished(id);
+        }
+    }
+
+    /**
+     * Reattaches to operations found in the journal which are still known by LXD. Operations LXD forgot about are
+     * removed from the journal.
+     * @return responses for the recovered operations
+     */
+    public Observable<LxdResponse<Operation>> recover() {
+        if (journal == null) {
+            return Observable.empty();
+        }
+        return Observable.defer(() -> {
+            List<OperationJournal.Entry> entries = journal.pending();
+            if (entries.isEmpty()) {
+                return Observable.empty();
+            }
+
+            return listOperations().flatMapObservable(operations -> {
+                Map<String, Operation> byId = new HashMap<>();
+                for (Operation operation : operations) {
+                    byId.put(operation.getId(), operation);
+                }
+
+                List<LxdResponse<Operation>> recovered = new ArrayList<>();
+                for (OperationJournal.Entry entry : entries) {
+                    Operation operation = byId.get(entry.getId());
+                    if (operation == null) {
+                        journal.finished(entry.getId());
+                        continue;
+                    }
+                    LxdResponse<Operation> response = new LxdResponse<>();
+                    response.setType(ResponseType.ASYNC);
+                    response.setOperationUrl(entry.getOperationUrl());
+                    response.setData(operation);
+                    recovered.add(response);
+                }
+                return Observable.fromIterable(recovered);
+            });
+        });
+    }
+
+    protected void rememberIfUntracked(Operation operation) {
+        if (!inFlight.containsKey(operation.getId()) && operation.getStatusCode().isFinal()) {
+            recentlyFinished.put(operation.getId(), operation);
+        }
+    }
+
+    protected void update(TrackedOperation tracked, Operation operation) {
+        if (operation.getStatusCode().isFinal()) {
+            forget(tracked);
+        }
+        // the subject is never completed so that late subscribers still get the final state
+        tracked.updates.onNext(operation);
+    }
+
+    /**
+     * Long polls a single operation until it reaches a final state
+     * @param operationResponse
+     * @return the operation states returned by each long poll
+     */
+    protected Observable<Operation> longPoll(LxdResponse<Operation> operationResponse) {
+        /*
+           As explained in https://www.stgraber.org/2016/04/18/lxd-api-direct-interaction/
+          "data about past operations disappears 5 seconds after they’re done."
+
+          https://medium.com/@v.danylo/server-polling-and-retrying-failed-operations-with-retrofit-and-rxjava-8bcc7e641a5a#.9ji4311wi
+         */
+        return rxClient.get(format("%s/wait?timeout=1", operationResponse.getOperationUrl())).longPoll().build()
+            .flatMapObservable(rp -> Observable.just(rp.parseOperation(ResponseType.SYNC, 200).getData()))
+            .repeat()
+            .takeUntil((Operation operation) -> operation.getStatusCode().isFinal());
+    }
+
+    static class TrackedOperation {
+        final String id;
+        final String operationUrl;
+        /** Fed by the polling or events thread and, for operations which finished early, by subscribing threads */
+        final Subject<Operation> updates;
+        /** Guarded by the tracker */
+        int subscribers;
+
+        TrackedOperation(LxdResponse<Operation> operationResponse) {
+            this.id = operationResponse.getData().getId();
+            this.operationUrl = operationResponse.getOperationUrl();
+            this.updates = BehaviorSubject.createDefault(operationResponse.getData()).toSerialized();
+        }
+    }
+
+    private static final Logger logger = Logger.getLogger(OperationTracker.class.getName());
+}
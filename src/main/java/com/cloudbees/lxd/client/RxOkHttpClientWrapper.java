@@ -24,6 +24,7 @@
 
 package com.cloudbees.lxd.client;
 
+import com.cloudbees.lxd.client.api.ETagged;
 import com.cloudbees.lxd.client.utils.HttpUtils;
 import com.cloudbees.lxd.client.utils.URLUtils;
 import io.reactivex.Single;
@@ -31,12 +32,21 @@ import io.reactivex.disposables.Disposable;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.HttpUrl;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -46,22 +56,82 @@ import java.util.logging.Logger;
 public class RxOkHttpClientWrapper implements AutoCloseable {
 
     protected final OkHttpClient client;
+    protected final OkHttpClient longPollClient;
     protected final Config config;
     protected final String rootApiUrl;
     protected final LxdResponseParser.Factory responseParserFactory;
+    /** Whether the dispatchers and connection pool are shared with other clients and must outlive this one */
+    protected final boolean sharedTransport;
+    /** Last ETag read per resource path, null if ETags aren't tracked, see {@link Config#withETagTracking(int)} */
+    protected final Map<String, String> etags;
+    /** Number of requests which failed to reach the daemon */
+    protected final AtomicLong failures = new AtomicLong();
+    /** In-flight GET requests by URL, null if requests aren't coalesced, see {@link Config#withRequestCoalescing(boolean)} */
+    protected final ConcurrentMap<String, Flight> inFlight;
 
     public RxOkHttpClientWrapper(Config config, LxdResponseParser.Factory responseParserFactory) {
+        this(config, responseParserFactory, HttpUtils.createHttpClient(config), null, false);
+    }
+
+    /**
+     * @param config the client configuration
+     * @param responseParserFactory the response parser factory
+     * @param client the client for regular requests
+     * @param longPollClient the client for long polling requests, or null to derive one from {@code client}
+     * @param sharedTransport true if the clients resources are shared and must not be released by {@link #close()}
+     */
+    public RxOkHttpClientWrapper(Config config, LxdResponseParser.Factory responseParserFactory, OkHttpClient client, OkHttpClient longPollClient, boolean sharedTransport) {
         this.config = config;
         this.responseParserFactory = responseParserFactory;
-        this.client = HttpUtils.createHttpClient(config);
+        this.client = client;
+        this.longPollClient = longPollClient != null ? longPollClient : HttpUtils.createLongPollHttpClient(config, client);
+        this.sharedTransport = sharedTransport;
         this.rootApiUrl = URLUtils.join(config.useUnixTransport() ? "http://localhost:80" : config.getBaseURL());
+        this.etags = config.getETagTrackingSize() > 0 ? etagMap(config.getETagTrackingSize()) : null;
+        this.inFlight = config.useRequestCoalescing() ? new ConcurrentHashMap<>() : null;
+    }
+
+    private static Map<String, String> etagMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Records the ETag of a resource read, writes make it outdated.
+     */
+    private void recordETag(Request request, Response response) {
+        if (etags == null) {
+            return;
+        }
+        String path = request.url().encodedPath();
+        if (!"GET".equals(request.method())) {
+            etags.remove(path);
+            return;
+        }
+        String etag = response.header("ETag");
+        if (response.code() == 200 && etag != null && request.url().encodedQuery() == null) {
+            etags.put(path, etag);
+        }
     }
 
     @Override
     public void close() {
+        if (sharedTransport) {
+            return;
+        }
+        // the connection pool is shared by both clients
         if (client.connectionPool() != null) {
             client.connectionPool().evictAll();
         }
+        shutdownDispatcher(client);
+        shutdownDispatcher(longPollClient);
+    }
+
+    private static void shutdownDispatcher(OkHttpClient client) {
         if (client.dispatcher() != null &&
             client.dispatcher().executorService() != null &&
             !client.dispatcher().executorService().isShutdown()
@@ -74,6 +144,13 @@ public class RxOkHttpClientWrapper implements AutoCloseable {
         return config;
     }
 
+    /**
+     * @return the number of requests which failed to reach the daemon, cancelled requests excluded
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
     private HttpUrl buildResourceUrl(String resourceUrl) {
         return HttpUrl.parse(URLUtils.join(rootApiUrl, resourceUrl));
     }
@@ -110,6 +187,8 @@ public class RxOkHttpClientWrapper implements AutoCloseable {
         final String method;
         final HttpUrl resourceUrl;
         RequestBody body = null;
+        boolean longPoll = false;
+        String ifMatch = null;
 
         RequestBuilder(HttpUrl resourceUrl, String method) {
             this.method = method;
@@ -123,9 +202,17 @@ public class RxOkHttpClientWrapper implements AutoCloseable {
         }
 
         public Single<LxdResponseParser> build(Function<Request.Builder, Request.Builder> f) {
-            return call(f.apply(new Request.Builder().method(method, body))
+            Request.Builder requestBuilder = f.apply(new Request.Builder().method(method, body))
                 .addHeader("User-Agent", "LXD-Java-Client")
-                .url(resourceUrl));
+                .url(resourceUrl);
+            String etag = ifMatch;
+            if (etag == null && etags != null && ("PUT".equals(method) || "PATCH".equals(method))) {
+                etag = etags.get(resourceUrl.encodedPath());
+            }
+            if (etag != null) {
+                requestBuilder.header("If-Match", etag);
+            }
+            return call(requestBuilder);
         }
 
         public Single<LxdResponseParser> build() {
@@ -137,38 +224,145 @@ public class RxOkHttpClientWrapper implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Only applies the write if the resource still has the given ETag, see {@link ETagged}
+         * @param etag the ETag, null to use the last one read when ETags are tracked
+         * @return this builder
+         */
+        public RequestBuilder ifMatch(String etag) {
+            this.ifMatch = etag;
+            return this;
+        }
+
+        /**
+         * Sends the request on the long polling lane, for requests which are expected to be parked by LXD
+         * @return this builder
+         */
+        public RequestBuilder longPoll() {
+            this.longPoll = true;
+            return this;
+        }
+
         protected Single<LxdResponseParser> call(Request.Builder requestBuilder) {
             Request request = requestBuilder.build();
+            if (inFlight != null && !longPoll && "GET".equals(request.method())) {
+                return coalesce(request);
+            }
 
+            return call(request, responseParserFactory::build);
+        }
+
+        /**
+         * Shares the response of an in-flight GET request with the identical requests sent in the meantime. The body
+         * is read in memory, then each subscriber parses its own copy.
+         */
+        protected Single<LxdResponseParser> coalesce(Request request) {
+            return Single.defer(() -> {
+                String key = request.url().toString();
+                Flight flight = new Flight(key, call(request, BufferedResponse::new));
+                Flight current = inFlight.putIfAbsent(key, flight);
+                return (current != null ? current : flight).response;
+            }).map(buffered -> responseParserFactory.build(buffered.call, buffered.newResponse()));
+        }
+
+        protected <T> Single<T> call(Request request, ResponseHandler<T> handler) {
             return Single.create(s -> {
-                Call call = client.newCall(request);
-                call.enqueue(new Callback() {
+                Call call = (longPoll ? longPollClient : client).newCall(request);
+                // once handled, the response belongs to the handler result: streamed bodies are still read after the
+                // emitter is done, and the emitter disposes this right after onSuccess
+                AtomicBoolean responded = new AtomicBoolean();
+                // set before enqueuing: once the emitter is done, a disposable set late is disposed right away
+                s.setDisposable(new Disposable() {
                     @Override
-                    public void onFailure(Call call1, IOException e) {
-                        s.onError(new HttpException(call1, e));
+                    public void dispose() {
+                        if (!responded.get()) {
+                            call.cancel();
+                        }
                     }
 
                     @Override
-                    public void onResponse(Call call1, Response response) throws IOException {
-                        s.onSuccess(responseParserFactory.build(call1, response));
+                    public boolean isDisposed() {
+                        return call.isCanceled();
                     }
                 });
+                if (s.isDisposed()) {
+                    return;
+                }
 
-                s.setDisposable(new Disposable() {
+                call.enqueue(new Callback() {
                     @Override
-                    public void dispose() {
-                        call.cancel();
+                    public void onFailure(Call call1, IOException e) {
+                        if (!call1.isCanceled()) {
+                            failures.incrementAndGet();
+                        }
+                        s.onError(new HttpException(call1, e));
                     }
 
                     @Override
-                    public boolean isDisposed() {
-                        return call.isCanceled();
+                    public void onResponse(Call call1, Response response) throws IOException {
+                        recordETag(call1.request(), response);
+                        T result;
+                        try {
+                            result = handler.handle(call1, response);
+                        } catch (IOException e) {
+                            s.onError(new HttpException(call1, e));
+                            return;
+                        }
+                        responded.set(true);
+                        s.onSuccess(result);
                     }
                 });
             });
         }
     }
 
+    @FunctionalInterface
+    protected interface ResponseHandler<T> {
+        T handle(Call call, Response response) throws IOException;
+    }
+
+    /**
+     * A GET request shared by the identical requests sent while it is in flight. The call is cancelled once all of
+     * them are disposed.
+     */
+    protected class Flight {
+        final Single<BufferedResponse> response;
+
+        Flight(String key, Single<BufferedResponse> call) {
+            // later requests send their own call once this one completed or was cancelled
+            this.response = call
+                .doOnEvent((r, t) -> inFlight.remove(key, this))
+                .doOnDispose(() -> inFlight.remove(key, this))
+                .toObservable()
+                .replay(1)
+                .refCount()
+                .singleOrError();
+        }
+    }
+
+    /**
+     * A response whose body was read in memory, so that it can be parsed more than once
+     */
+    protected static class BufferedResponse {
+        final Call call;
+        final Response response;
+        final MediaType contentType;
+        final byte[] body;
+
+        BufferedResponse(Call call, Response response) throws IOException {
+            this.call = call;
+            this.response = response;
+            try (ResponseBody responseBody = response.body()) {
+                this.contentType = responseBody.contentType();
+                this.body = responseBody.bytes();
+            }
+        }
+
+        Response newResponse() {
+            return response.newBuilder().body(ResponseBody.create(contentType, body)).build();
+        }
+    }
+
     public static class HttpException extends Exception {
         public final Call call;
 
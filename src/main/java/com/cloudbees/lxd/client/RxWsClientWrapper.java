@@ -27,6 +27,7 @@ package com.cloudbees.lxd.client;
 import com.cloudbees.lxd.client.utils.HttpUtils;
 import com.cloudbees.lxd.client.utils.URLUtils;
 import io.reactivex.Completable;
+import io.reactivex.Observable;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -48,16 +49,33 @@ public class RxWsClientWrapper implements AutoCloseable {
     protected final OkHttpClient client;
     protected final Config config;
     protected final String rootApiUrl;
-    ExecutorService executorService = Executors.newCachedThreadPool();
+    protected final ExecutorService executorService;
+    /** Whether the client and executor are shared with other clients and must outlive this one */
+    protected final boolean sharedTransport;
 
     public RxWsClientWrapper(Config config) {
+        this(config, HttpUtils.createWsClient(config), Executors.newCachedThreadPool(), false);
+    }
+
+    /**
+     * @param config the client configuration
+     * @param client the websocket client
+     * @param executorService the executor feeding websockets from input streams
+     * @param sharedTransport true if the client and executor are shared and must not be released by {@link #close()}
+     */
+    public RxWsClientWrapper(Config config, OkHttpClient client, ExecutorService executorService, boolean sharedTransport) {
         this.config = config;
-        this.client = HttpUtils.createWsClient(config);
+        this.client = client;
+        this.executorService = executorService;
+        this.sharedTransport = sharedTransport;
         this.rootApiUrl = URLUtils.join(config.useUnixTransport() ? "http://localhost:80" : config.getBaseURL());
     }
 
     @Override
     public void close() {
+        if (sharedTransport) {
+            return;
+        }
         executorService.shutdown();
 
         if (client.connectionPool() != null) {
@@ -145,6 +163,53 @@ public class RxWsClientWrapper implements AutoCloseable {
         });
     }
 
+    /**
+     * Streams text messages received on a websocket. The websocket is closed when the subscription is disposed.
+     * @param resourceUrl the websocket URL
+     * @param onOpen called once the websocket is connected, before any message is emitted
+     * @return a stream of text messages
+     */
+    public Observable<String> wsTextStream(String resourceUrl, Runnable onOpen) {
+        Request request = new Request.Builder().get()
+            .url(buildResourceUrl(resourceUrl))
+            .addHeader("User-Agent", "LXD-Java-Client")
+            .build();
+
+        return Observable.create(emitter -> {
+            WebSocket ws = client.newWebSocket(request, new WebSocketListener() {
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    onOpen.run();
+                }
+
+                @Override
+                public void onMessage(WebSocket webSocket, String text) {
+                    emitter.onNext(text);
+                }
+
+                @Override
+                public void onClosing(WebSocket webSocket, int code, String reason) {
+                    webSocket.close(1000, null);
+                }
+
+                @Override
+                public void onClosed(WebSocket webSocket, int code, String reason) {
+                    emitter.onComplete();
+                }
+
+                @Override
+                public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                    // cancelling the websocket on dispose also ends up here
+                    if (!emitter.isDisposed()) {
+                        emitter.onError(t);
+                    }
+                }
+            });
+
+            emitter.setCancellable(ws::cancel);
+        });
+    }
+
     static class InputStreamCopier implements Runnable {
         final InputStream in;
         final WebSocket wsOut;
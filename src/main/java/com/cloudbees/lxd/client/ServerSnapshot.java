@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import com.cloudbees.lxd.client.api.Server;
+import io.reactivex.Single;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * The {@link Server} description of the daemon, fetched once per connection. It is fetched again after the events
+ * websocket connects or disconnects, or after a request failed to reach the daemon, as the daemon may have been
+ * restarted or upgraded in between.
+ */
+class ServerSnapshot {
+    private final Callable<Single<Server>> fetch;
+    private final RxOkHttpClientWrapper rxClient;
+
+    /** Guarded by this */
+    private Snapshot snapshot;
+    private Single<Snapshot> refresh;
+    /** Incremented by each invalidation, so that a refresh started before doesn't win over it */
+    private long generation;
+
+    /**
+     * @param fetch fetches the server description from the daemon
+     * @param rxClient the HTTP transport, whose failures invalidate the snapshot
+     */
+    ServerSnapshot(Callable<Single<Server>> fetch, RxOkHttpClientWrapper rxClient) {
+        this.fetch = fetch;
+        this.rxClient = rxClient;
+    }
+
+    Single<Server> server() {
+        return Single.defer(this::current).map(s -> s.server);
+    }
+
+    Single<Boolean> supports(String extension) {
+        return Single.defer(this::current).map(s -> s.extensions.contains(extension));
+    }
+
+    synchronized void invalidate() {
+        snapshot = null;
+        generation++;
+    }
+
+    private synchronized Single<Snapshot> current() throws Exception {
+        if (snapshot != null && snapshot.failures == rxClient.getFailureCount()) {
+            return Single.just(snapshot);
+        }
+        if (refresh == null) {
+            long failures = rxClient.getFailureCount();
+            long refreshGeneration = generation;
+            refresh = fetch.call()
+                .map(server -> new Snapshot(server, failures))
+                .doOnSuccess(s -> refreshed(s, refreshGeneration))
+                .doOnError(t -> refreshFailed())
+                .cache();
+        }
+        return refresh;
+    }
+
+    private synchronized void refreshed(Snapshot refreshed, long refreshGeneration) {
+        if (refreshGeneration == generation) {
+            snapshot = refreshed;
+        }
+        refresh = null;
+    }
+
+    private synchronized void refreshFailed() {
+        refresh = null;
+    }
+
+    private static class Snapshot {
+        final Server server;
+        final Set<String> extensions;
+        /** Transport failures when it was fetched */
+        final long failures;
+
+        Snapshot(Server server, long failures) {
+            this.server = server;
+            this.extensions = server.getApiExtensions() != null ? new HashSet<>(server.getApiExtensions()) : Collections.emptySet();
+            this.failures = failures;
+        }
+    }
+}
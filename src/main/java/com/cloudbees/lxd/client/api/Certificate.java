@@ -1,7 +1,6 @@
 
 package com.cloudbees.lxd.client.api;
 
-import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Generated;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -36,7 +35,7 @@ public class Certificate extends CertificatePut
     @JsonProperty("fingerprint")
     private String fingerprint;
     @JsonIgnore
-    private Map<String, Object> additionalProperties = new HashMap<String, Object>();
+    private Map<String, Object> additionalProperties;
 
     /**
      * No args constructor for use in serialization
@@ -4,6 +4,7 @@ package com.cloudbees.lxd.client.api;
 import java.util.Date;
 import java.util.Map;
 import javax.annotation.Generated;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
@@ -25,7 +26,7 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
     "status",
     "status_code"
 })
-public class Container extends ContainerPut
+public class Container extends ContainerPut implements ETagged
 {
 
     /**
@@ -77,6 +78,9 @@ public class Container extends ContainerPut
     @JsonProperty("status_code")
     private StatusCode statusCode;
 
+    @JsonIgnore
+    private String etag;
+
     /**
      * No args constructor for use in serialization
      *
@@ -84,6 +88,18 @@ public class Container extends ContainerPut
     public Container() {
     }
 
+    @JsonIgnore
+    @Override
+    public String getETag() {
+        return etag;
+    }
+
+    @JsonIgnore
+    @Override
+    public void setETag(String etag) {
+        this.etag = etag;
+    }
+
     /**
      *
      *
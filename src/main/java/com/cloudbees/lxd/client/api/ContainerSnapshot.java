@@ -4,6 +4,7 @@ package com.cloudbees.lxd.client.api;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -105,7 +106,7 @@ public class ContainerSnapshot implements Serializable
     @JsonProperty("stateful")
     private Boolean stateful;
     @JsonIgnore
-    private Map<java.lang.String, Object> additionalProperties = new HashMap<java.lang.String, Object>();
+    private Map<java.lang.String, Object> additionalProperties;
 
     /**
      * No args constructor for use in serialization
@@ -386,11 +387,14 @@ public class ContainerSnapshot implements Serializable
 
     @JsonAnyGetter
     public Map<java.lang.String, Object> getAdditionalProperties() {
-        return this.additionalProperties;
+        return this.additionalProperties != null ? this.additionalProperties : Collections.<java.lang.String, Object>emptyMap();
     }
 
     @JsonAnySetter
     public void setAdditionalProperty(java.lang.String name, Object value) {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<java.lang.String, Object>();
+        }
         this.additionalProperties.put(name, value);
     }
 
@@ -2,6 +2,7 @@
 package com.cloudbees.lxd.client.api;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Generated;
@@ -81,7 +82,7 @@ public class ContainerState implements Serializable
     @JsonProperty("status_code")
     private StatusCode statusCode;
     @JsonIgnore
-    private Map<java.lang.String, Object> additionalProperties = new HashMap<java.lang.String, Object>();
+    private Map<java.lang.String, Object> additionalProperties;
 
     /**
      * No args constructor for use in serialization
@@ -290,11 +291,14 @@ public class ContainerState implements Serializable
 
     @JsonAnyGetter
     public Map<java.lang.String, Object> getAdditionalProperties() {
-        return this.additionalProperties;
+        return this.additionalProperties != null ? this.additionalProperties : Collections.<java.lang.String, Object>emptyMap();
     }
 
     @JsonAnySetter
     public void setAdditionalProperty(java.lang.String name, Object value) {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<java.lang.String, Object>();
+        }
         this.additionalProperties.put(name, value);
     }
 
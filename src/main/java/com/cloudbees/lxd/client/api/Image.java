@@ -35,7 +35,7 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
     "update_source",
     "uploaded_at"
 })
-public class Image extends ImagePut
+public class Image extends ImagePut implements ETagged
 {
 
     /**
@@ -105,6 +105,9 @@ public class Image extends ImagePut
     @JsonProperty("uploaded_at")
     private Date uploadedAt;
 
+    @JsonIgnore
+    private String etag;
+
     /**
      * No args constructor for use in serialization
      *
@@ -112,6 +115,18 @@ public class Image extends ImagePut
     public Image() {
     }
 
+    @JsonIgnore
+    @Override
+    public String getETag() {
+        return etag;
+    }
+
+    @JsonIgnore
+    @Override
+    public void setETag(String etag) {
+        this.etag = etag;
+    }
+
     /**
      *
      *
@@ -24,6 +24,7 @@
 
 package com.cloudbees.lxd.client.api;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -53,6 +54,10 @@ public class LxdResponse<E> {
     @JsonProperty("metadata")
     private E data;
 
+    /* ETag header of the response, sent by LXD for single resources */
+    @JsonIgnore
+    private String etag;
+
     public ResponseType getType() {
         return type;
     }
@@ -109,6 +114,16 @@ public class LxdResponse<E> {
         this.data = data;
     }
 
+    @JsonIgnore
+    public String getETag() {
+        return etag;
+    }
+
+    @JsonIgnore
+    public void setETag(String etag) {
+        this.etag = etag;
+    }
+
     @Override
     public String toString() {
         return "LXDResponse{" +
@@ -28,7 +28,7 @@ import java.util.Map;
     "type",
     "used_by"
 })
-public class Network extends NetworkPut
+public class Network extends NetworkPut implements ETagged
 {
 
     /**
@@ -56,6 +56,9 @@ public class Network extends NetworkPut
     @JsonProperty("used_by")
     private List<String> usedBy = new ArrayList<String>();
 
+    @JsonIgnore
+    private String etag;
+
     /**
      * No args constructor for use in serialization
      *
@@ -63,6 +66,18 @@ public class Network extends NetworkPut
     public Network() {
     }
 
+    @JsonIgnore
+    @Override
+    public String getETag() {
+        return etag;
+    }
+
+    @JsonIgnore
+    @Override
+    public void setETag(String etag) {
+        this.etag = etag;
+    }
+
     /**
      *
      *
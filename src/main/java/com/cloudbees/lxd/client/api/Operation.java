@@ -24,12 +24,14 @@
 
 package com.cloudbees.lxd.client.api;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 import javax.annotation.Generated;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -78,6 +80,13 @@ public class Operation implements Serializable {
     @JsonProperty("err")
     private String err;
 
+    /** Timestamps with the nanoseconds sent by LXD, which Date truncates */
+    @JsonIgnore
+    private Instant createdAtInstant;
+
+    @JsonIgnore
+    private Instant updatedAtInstant;
+
     public String getId() {
         return id;
     }
@@ -100,6 +109,18 @@ public class Operation implements Serializable {
 
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
+        this.createdAtInstant = createdAt != null ? createdAt.toInstant() : null;
+    }
+
+    @JsonIgnore
+    public Instant getCreatedAtInstant() {
+        return createdAtInstant;
+    }
+
+    @JsonIgnore
+    public void setCreatedAtInstant(Instant createdAt) {
+        this.createdAt = createdAt != null ? Date.from(createdAt) : null;
+        this.createdAtInstant = createdAt;
     }
 
     public Date getUpdatedAt() {
@@ -108,6 +129,18 @@ public class Operation implements Serializable {
 
     public void setUpdatedAt(Date updatedAt) {
         this.updatedAt = updatedAt;
+        this.updatedAtInstant = updatedAt != null ? updatedAt.toInstant() : null;
+    }
+
+    @JsonIgnore
+    public Instant getUpdatedAtInstant() {
+        return updatedAtInstant;
+    }
+
+    @JsonIgnore
+    public void setUpdatedAtInstant(Instant updatedAt) {
+        this.updatedAt = updatedAt != null ? Date.from(updatedAt) : null;
+        this.updatedAtInstant = updatedAt;
     }
 
     public String getStatus() {
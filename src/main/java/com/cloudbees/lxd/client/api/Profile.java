@@ -25,7 +25,7 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
     "name",
     "used_by"
 })
-public class Profile extends ProfilePut
+public class Profile extends ProfilePut implements ETagged
 {
 
     /**
@@ -41,6 +41,9 @@ public class Profile extends ProfilePut
     @JsonProperty("used_by")
     private List<String> usedBy = new ArrayList<String>();
 
+    @JsonIgnore
+    private String etag;
+
     /**
      * No args constructor for use in serialization
      *
@@ -48,6 +51,18 @@ public class Profile extends ProfilePut
     public Profile() {
     }
 
+    @JsonIgnore
+    @Override
+    public String getETag() {
+        return etag;
+    }
+
+    @JsonIgnore
+    @Override
+    public void setETag(String etag) {
+        this.etag = etag;
+    }
+
     /**
      *
      *
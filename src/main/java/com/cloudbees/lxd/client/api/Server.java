@@ -22,6 +22,10 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 })
 public class Server extends ServerPut
 {
+    /** Appending to files, see {@link com.cloudbees.lxd.client.LxdClient.ContainerClient#fileAppend} */
+    public static final String EXTENSION_FILE_APPEND = "file_append";
+    /** Recording the output of commands, see {@link com.cloudbees.lxd.client.LxdClient.ContainerClient#executeBuffered} */
+    public static final String EXTENSION_CONTAINER_EXEC_RECORDING = "container_exec_recording";
 
     /**
      *
@@ -2,6 +2,7 @@
 package com.cloudbees.lxd.client.api;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Generated;
@@ -32,7 +33,7 @@ public class ServerPut implements Serializable
     @JsonProperty("config")
     private Map<String, Object> config;
     @JsonIgnore
-    private Map<java.lang.String, java.lang.Object> additionalProperties = new HashMap<java.lang.String, java.lang.Object>();
+    private Map<java.lang.String, java.lang.Object> additionalProperties;
 
     /**
      * No args constructor for use in serialization
@@ -73,11 +74,14 @@ public class ServerPut implements Serializable
 
     @JsonAnyGetter
     public Map<java.lang.String, java.lang.Object> getAdditionalProperties() {
-        return this.additionalProperties;
+        return this.additionalProperties != null ? this.additionalProperties : Collections.<java.lang.String, java.lang.Object>emptyMap();
     }
 
     @JsonAnySetter
     public void setAdditionalProperty(java.lang.String name, java.lang.Object value) {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<java.lang.String, java.lang.Object>();
+        }
         this.additionalProperties.put(name, value);
     }
 
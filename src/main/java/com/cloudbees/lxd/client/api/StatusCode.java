@@ -60,6 +60,13 @@ public enum StatusCode {
         return value;
     }
 
+    /**
+     * @return true if an operation in this state won't change anymore
+     */
+    public boolean isFinal() {
+        return this == Success || this == Failure || this == Cancelled;
+    }
+
     private static Map<Integer, StatusCode> FORMAT_MAP = Stream.of(StatusCode.values()).collect(
         Collectors.toMap(s -> s.value, Function.identity()));
 
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.cloudbees.lxd.client.api.Container;
+import com.cloudbees.lxd.client.api.StatusCode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link Container}s, which make up the bulk of recursive container listings.
+ */
+public class ContainerDeserializer extends StreamingDeserializer<Container> {
+
+    private static final long serialVersionUID = 1L;
+
+    private JsonDeserializer<Object> statusCodeDeserializer;
+    private JsonDeserializer<Object> configDeserializer;
+    private JsonDeserializer<Object> devicesDeserializer;
+    private JsonDeserializer<Object> profilesDeserializer;
+
+    public ContainerDeserializer() {
+        super(Container.class);
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        super.resolve(ctxt);
+        statusCodeDeserializer = find(ctxt, StatusCode.class);
+        configDeserializer = find(ctxt, new TypeReference<Map<String, String>>() {}.getType());
+        devicesDeserializer = find(ctxt, new TypeReference<Map<String, Map<String, String>>>() {}.getType());
+        profilesDeserializer = find(ctxt, new TypeReference<List<String>>() {}.getType());
+    }
+
+    @Override
+    protected Container readObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        StringCanonicalizer canonicalizer = canonicalizer(ctxt);
+        Container container = new Container();
+        for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            switch (name) {
+                case "name":
+                    container.setName(readString(p, ctxt));
+                    break;
+                case "status":
+                    container.setStatus(readString(p, ctxt, canonicalizer));
+                    break;
+                case "status_code":
+                    container.setStatusCode(read(statusCodeDeserializer, p, ctxt));
+                    break;
+                case "architecture":
+                    container.setArchitecture(readString(p, ctxt, canonicalizer));
+                    break;
+                case "config":
+                    container.setConfig(readStringMap(p, ctxt, canonicalizer, configDeserializer));
+                    break;
+                case "devices":
+                    container.setDevices(readStringMaps(p, ctxt, canonicalizer, devicesDeserializer));
+                    break;
+                case "ephemeral":
+                    container.setEphemeral(readBoolean(p, ctxt));
+                    break;
+                case "profiles":
+                    container.setProfiles(readStringList(p, ctxt, canonicalizer, profilesDeserializer));
+                    break;
+                case "restore":
+                    container.setRestore(readString(p, ctxt));
+                    break;
+                case "created_at":
+                    container.setCreatedAt(readDate(p, ctxt));
+                    break;
+                case "expanded_config":
+                    container.setExpandedConfig(readStringMap(p, ctxt, canonicalizer, configDeserializer));
+                    break;
+                case "expanded_devices":
+                    container.setExpandedDevices(readStringMaps(p, ctxt, canonicalizer, devicesDeserializer));
+                    break;
+                case "last_used_at":
+                    container.setLastUsedAt(readDate(p, ctxt));
+                    break;
+                case "stateful":
+                    container.setStateful(readBoolean(p, ctxt));
+                    break;
+                default:
+                    handleUnknownProperty(p, ctxt, container, name);
+            }
+        }
+        return container;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.cloudbees.lxd.client.api.ContainerView;
+import com.cloudbees.lxd.client.api.StatusCode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a container into a {@link ContainerView}, filling the properties of the {@link Projection} found in the
+ * {@link Projection} context attribute, or all of them when there is none. Other fields are skipped.
+ */
+public class ContainerViewDeserializer extends StreamingDeserializer<ContainerView> {
+
+    private static final long serialVersionUID = 1L;
+
+    private JsonDeserializer<Object> statusCodeDeserializer;
+    private JsonDeserializer<Object> configDeserializer;
+    private JsonDeserializer<Object> profilesDeserializer;
+
+    public ContainerViewDeserializer() {
+        super(ContainerView.class);
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        super.resolve(ctxt);
+        statusCodeDeserializer = find(ctxt, StatusCode.class);
+        configDeserializer = find(ctxt, new TypeReference<Map<String, String>>() {}.getType());
+        profilesDeserializer = find(ctxt, new TypeReference<List<String>>() {}.getType());
+    }
+
+    @Override
+    protected ContainerView readObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        Projection projection = (Projection) ctxt.getAttribute(Projection.class);
+        StringCanonicalizer canonicalizer = canonicalizer(ctxt);
+        ContainerView view = new ContainerView();
+        for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            switch (name) {
+                case "name":
+                    if (wants(projection, "name", p)) {
+                        view.setName(readString(p, ctxt));
+                    }
+                    break;
+                case "status":
+                    if (wants(projection, "status", p)) {
+                        view.setStatus(readString(p, ctxt, canonicalizer));
+                    }
+                    break;
+                case "status_code":
+                    if (wants(projection, "statusCode", p)) {
+                        view.setStatusCode(read(statusCodeDeserializer, p, ctxt));
+                    }
+                    break;
+                case "architecture":
+                    if (wants(projection, "architecture", p)) {
+                        view.setArchitecture(readString(p, ctxt, canonicalizer));
+                    }
+                    break;
+                case "ephemeral":
+                    if (wants(projection, "ephemeral", p)) {
+                        view.setEphemeral(readBoolean(p, ctxt));
+                    }
+                    break;
+                case "stateful":
+                    if (wants(projection, "stateful", p)) {
+                        view.setStateful(readBoolean(p, ctxt));
+                    }
+                    break;
+                case "created_at":
+                    if (wants(projection, "createdAt", p)) {
+                        view.setCreatedAt(readDate(p, ctxt));
+                    }
+                    break;
+                case "last_used_at":
+                    if (wants(projection, "lastUsedAt", p)) {
+                        view.setLastUsedAt(readDate(p, ctxt));
+                    }
+                    break;
+                case "profiles":
+                    if (wants(projection, "profiles", p)) {
+                        view.setProfiles(readStringList(p, ctxt, canonicalizer, profilesDeserializer));
+                    }
+                    break;
+                case "config":
+                    if (wants(projection, "config", p)) {
+                        view.setConfig(readStringMap(p, ctxt, canonicalizer, configDeserializer));
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return view;
+    }
+
+    /**
+     * @return true if the property is projected, otherwise skips its value
+     */
+    private static boolean wants(Projection projection, String property, JsonParser p) throws IOException {
+        if (projection == null || projection.includes(property)) {
+            return true;
+        }
+        p.skipChildren();
+        return false;
+    }
+}
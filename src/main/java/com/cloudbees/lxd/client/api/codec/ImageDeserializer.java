@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.cloudbees.lxd.client.api.Image;
+import com.cloudbees.lxd.client.api.ImageAlias;
+import com.cloudbees.lxd.client.api.ImageSource;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link Image}s, which make up the bulk of recursive image listings.
+ */
+public class ImageDeserializer extends StreamingDeserializer<Image> {
+
+    private static final long serialVersionUID = 1L;
+
+    private JsonDeserializer<Object> aliasesDeserializer;
+    private JsonDeserializer<Object> updateSourceDeserializer;
+    private JsonDeserializer<Object> propertiesDeserializer;
+    private JsonDeserializer<Object> untypedDeserializer;
+
+    public ImageDeserializer() {
+        super(Image.class);
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        super.resolve(ctxt);
+        aliasesDeserializer = find(ctxt, new TypeReference<List<ImageAlias>>() {}.getType());
+        updateSourceDeserializer = find(ctxt, ImageSource.class);
+        propertiesDeserializer = find(ctxt, new TypeReference<Map<String, String>>() {}.getType());
+        untypedDeserializer = find(ctxt, Object.class);
+    }
+
+    @Override
+    protected Image readObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        StringCanonicalizer canonicalizer = canonicalizer(ctxt);
+        Image image = new Image();
+        for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            switch (name) {
+                case "fingerprint":
+                    image.setFingerprint(readString(p, ctxt));
+                    break;
+                case "aliases":
+                    image.setAliases(read(aliasesDeserializer, p, ctxt));
+                    break;
+                case "architecture":
+                    image.setArchitecture(readString(p, ctxt, canonicalizer));
+                    break;
+                case "cached":
+                    image.setCached(readBoolean(p, ctxt));
+                    break;
+                case "filename":
+                    image.setFilename(readString(p, ctxt));
+                    break;
+                case "size":
+                    image.setSize(readLong(p, ctxt));
+                    break;
+                case "update_source":
+                    image.setUpdateSource(read(updateSourceDeserializer, p, ctxt));
+                    break;
+                case "created_at":
+                    image.setCreatedAt(readDate(p, ctxt));
+                    break;
+                case "expires_at":
+                    image.setExpiresAt(readDate(p, ctxt));
+                    break;
+                case "last_used_at":
+                    image.setLastUsedAt(readDate(p, ctxt));
+                    break;
+                case "uploaded_at":
+                    image.setUploadedAt(readDate(p, ctxt));
+                    break;
+                case "auto_update":
+                    image.setAutoUpdate(readBoolean(p, ctxt));
+                    break;
+                case "properties":
+                    image.setProperties(readStringMap(p, ctxt, canonicalizer, propertiesDeserializer));
+                    break;
+                case "public":
+                    image.setPublic(readBoolean(p, ctxt));
+                    break;
+                default:
+                    image.setAdditionalProperty(name, read(untypedDeserializer, p, ctxt));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.cloudbees.lxd.client.api.Container;
+import com.cloudbees.lxd.client.api.ContainerView;
+import com.cloudbees.lxd.client.api.Image;
+import com.cloudbees.lxd.client.api.Operation;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.util.Date;
+
+/**
+ * Registers the streaming deserializers of the models found in large or frequent responses, and a fast RFC 3339
+ * date deserializer. Other models keep using the reflective bean deserializer.
+ */
+public class LxdModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    public LxdModule() {
+        super(LxdModule.class.getSimpleName());
+        addDeserializer(Date.class, new Rfc3339DateDeserializer());
+        addDeserializer(Operation.class, new OperationDeserializer());
+        addDeserializer(Container.class, new ContainerDeserializer());
+        addDeserializer(Image.class, new ImageDeserializer());
+        addDeserializer(ContainerView.class, new ContainerViewDeserializer());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.cloudbees.lxd.client.api.Operation;
+import com.cloudbees.lxd.client.api.StatusCode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link Operation}s, which are parsed on every status poll.
+ */
+public class OperationDeserializer extends StreamingDeserializer<Operation> {
+
+    private static final long serialVersionUID = 1L;
+
+    private JsonDeserializer<Object> statusCodeDeserializer;
+    private JsonDeserializer<Object> resourcesDeserializer;
+    private JsonDeserializer<Object> metadataDeserializer;
+
+    public OperationDeserializer() {
+        super(Operation.class);
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        super.resolve(ctxt);
+        statusCodeDeserializer = find(ctxt, StatusCode.class);
+        resourcesDeserializer = find(ctxt, new TypeReference<Map<String, List<String>>>() {}.getType());
+        metadataDeserializer = find(ctxt, new TypeReference<Map<String, Object>>() {}.getType());
+    }
+
+    @Override
+    protected Operation readObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        StringCanonicalizer canonicalizer = canonicalizer(ctxt);
+        Operation operation = new Operation();
+        for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            switch (name) {
+                case "id":
+                    operation.setId(readString(p, ctxt));
+                    break;
+                case "class":
+                    operation.setClazz(readString(p, ctxt, canonicalizer));
+                    break;
+                case "created_at":
+                    operation.setCreatedAtInstant(Rfc3339DateDeserializer.deserializeInstant(p, ctxt));
+                    break;
+                case "updated_at":
+                    operation.setUpdatedAtInstant(Rfc3339DateDeserializer.deserializeInstant(p, ctxt));
+                    break;
+                case "status":
+                    operation.setStatus(readString(p, ctxt, canonicalizer));
+                    break;
+                case "status_code":
+                    operation.setStatusCode(read(statusCodeDeserializer, p, ctxt));
+                    break;
+                case "resources":
+                    operation.setResources(read(resourcesDeserializer, p, ctxt));
+                    break;
+                case "metadata":
+                    operation.setMetadata(read(metadataDeserializer, p, ctxt));
+                    break;
+                case "may_cancel":
+                    operation.setMayCancel(readString(p, ctxt));
+                    break;
+                case "err":
+                    operation.setErr(readString(p, ctxt));
+                    break;
+                default:
+                    handleUnknownProperty(p, ctxt, operation, name);
+            }
+        }
+        return operation;
+    }
+}
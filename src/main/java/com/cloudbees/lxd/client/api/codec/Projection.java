@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Names of the properties to read from a response. Other properties are skipped by the parser, without being bound.
+ */
+public final class Projection {
+    private final Set<String> properties;
+
+    private Projection(Set<String> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param properties names of the properties of the view to fill, such as "name" or "statusCode"
+     * @return the projection
+     */
+    public static Projection of(String... properties) {
+        return new Projection(Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(properties))));
+    }
+
+    public Set<String> getProperties() {
+        return properties;
+    }
+
+    public boolean includes(String property) {
+        return properties.contains(property);
+    }
+
+    /**
+     * @param allowed the properties of the view
+     * @return this projection
+     * @throws IllegalArgumentException if a projected property doesn't exist in the view
+     */
+    public Projection checkProperties(Collection<String> allowed) {
+        for (String property : properties) {
+            if (!allowed.contains(property)) {
+                throw new IllegalArgumentException(String.format("Unknown property %s, expected one of %s", property, allowed));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection" + properties;
+    }
+}
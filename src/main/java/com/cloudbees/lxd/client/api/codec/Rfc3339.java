@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import java.time.Instant;
+
+/**
+ * Parser of the RFC 3339 timestamps sent by LXD, such as {@code 2016-11-18T13:01:25.679471689Z}, working on the
+ * characters of the parser buffer without intermediate objects. Timestamps which don't follow
+ * {@code yyyy-MM-dd'T'HH:mm:ss[.fraction](Z|+HH:mm|-HH:mm)} are rejected, so that callers can fall back to a lenient
+ * parser.
+ */
+public final class Rfc3339 {
+    /** Returned by {@link #parseEpochMillis} for invalid timestamps */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final int FRACTION_START = 19;
+
+    private Rfc3339() {
+    }
+
+    public static Instant parseInstant(String text) {
+        char[] chars = text.toCharArray();
+        return parseInstant(chars, 0, chars.length);
+    }
+
+    /**
+     * @return the timestamp with nanosecond precision, or null if it isn't valid
+     */
+    public static Instant parseInstant(char[] text, int offset, int length) {
+        long epochSecond = parseEpochSecond(text, offset, length);
+        if (epochSecond == INVALID) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSecond, parseNanos(text, offset, length));
+    }
+
+    /**
+     * @return the timestamp truncated to milliseconds, or {@link #INVALID}
+     */
+    public static long parseEpochMillis(char[] text, int offset, int length) {
+        long epochSecond = parseEpochSecond(text, offset, length);
+        if (epochSecond == INVALID) {
+            return INVALID;
+        }
+        return epochSecond * 1000 + parseNanos(text, offset, length) / 1_000_000;
+    }
+
+    private static long parseEpochSecond(char[] text, int offset, int length) {
+        if (length < 20
+            || text[offset + 4] != '-' || text[offset + 7] != '-'
+            || (text[offset + 10] != 'T' && text[offset + 10] != 't')
+            || text[offset + 13] != ':' || text[offset + 16] != ':') {
+            return INVALID;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int hour = digits(text, offset + 11, 2);
+        int minute = digits(text, offset + 14, 2);
+        int second = digits(text, offset + 17, 2);
+        // negative when a digit is missing
+        if ((year | month | day | hour | minute | second) < 0
+            || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+            || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+
+        int i = FRACTION_START;
+        if (text[offset + i] == '.') {
+            i++;
+            int fractionStart = i;
+            while (i < length && isDigit(text[offset + i])) {
+                i++;
+            }
+            if (i == fractionStart || i == length) {
+                return INVALID;
+            }
+        }
+
+        int offsetSeconds;
+        char zone = text[offset + i];
+        if ((zone == 'Z' || zone == 'z') && i + 1 == length) {
+            offsetSeconds = 0;
+        } else if ((zone == '+' || zone == '-') && i + 6 == length && text[offset + i + 3] == ':') {
+            int offsetHours = digits(text, offset + i + 1, 2);
+            int offsetMinutes = digits(text, offset + i + 4, 2);
+            if ((offsetHours | offsetMinutes) < 0 || offsetHours > 23 || offsetMinutes > 59) {
+                return INVALID;
+            }
+            offsetSeconds = (zone == '-' ? -1 : 1) * (offsetHours * 3600 + offsetMinutes * 60);
+        } else {
+            return INVALID;
+        }
+
+        return epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+    }
+
+    /**
+     * @return the nanoseconds of a valid timestamp, digits beyond nanoseconds are dropped
+     */
+    private static int parseNanos(char[] text, int offset, int length) {
+        int i = FRACTION_START;
+        if (text[offset + i] != '.') {
+            return 0;
+        }
+        int nanos = 0;
+        int scale = 100_000_000;
+        for (i++; i < length && isDigit(text[offset + i]); i++) {
+            nanos += (text[offset + i] - '0') * scale;
+            scale /= 10;
+        }
+        return nanos;
+    }
+
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            char c = text[offset + i];
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 of a date of the proleptic Gregorian calendar, see
+     * http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Reads dates with {@link Rfc3339}, falling back to the configured date format for anything else.
+ */
+public class Rfc3339DateDeserializer extends StdScalarDeserializer<Date> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Rfc3339DateDeserializer() {
+        super(Date.class);
+    }
+
+    @Override
+    public Date deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+            long epochMillis = Rfc3339.parseEpochMillis(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (epochMillis != Rfc3339.INVALID) {
+                return new Date(epochMillis);
+            }
+        }
+        return _parseDate(p, ctxt);
+    }
+
+    /**
+     * Reads a timestamp keeping its nanoseconds.
+     * @return the timestamp, or null for a JSON null
+     */
+    public static Instant deserializeInstant(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (t == JsonToken.VALUE_STRING) {
+            Instant instant = Rfc3339.parseInstant(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (instant != null) {
+                return instant;
+            }
+        }
+        Date date = (Date) ctxt.findRootValueDeserializer(ctxt.constructType(Date.class)).deserialize(p, ctxt);
+        return date != null ? date.toInstant() : null;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class for deserializers reading a model field by field from the token stream, instead of going through the
+ * reflective bean deserializer. Values which are not plain scalars are read by the deserializers Jackson would use,
+ * looked up once when the deserializer is resolved.
+ */
+abstract class StreamingDeserializer<T> extends StdDeserializer<T> implements ResolvableDeserializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private JsonDeserializer<Object> stringDeserializer;
+    private JsonDeserializer<Object> booleanDeserializer;
+    private JsonDeserializer<Object> longDeserializer;
+    private JsonDeserializer<Object> dateDeserializer;
+
+    protected StreamingDeserializer(Class<T> type) {
+        super(type);
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        stringDeserializer = find(ctxt, String.class);
+        booleanDeserializer = find(ctxt, Boolean.class);
+        longDeserializer = find(ctxt, Long.class);
+        dateDeserializer = find(ctxt, Date.class);
+    }
+
+    protected static JsonDeserializer<Object> find(DeserializationContext ctxt, Type type) throws JsonMappingException {
+        JavaType javaType = ctxt.getTypeFactory().constructType(type);
+        return ctxt.findRootValueDeserializer(javaType);
+    }
+
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.START_ARRAY && ctxt.isEnabled(DeserializationFeature.UNWRAP_SINGLE_VALUE_ARRAYS)) {
+            p.nextToken();
+            T value = readObject(p, ctxt);
+            if (p.nextToken() != JsonToken.END_ARRAY) {
+                ctxt.reportWrongTokenException(p, JsonToken.END_ARRAY, "Attempted to unwrap single value array for single '%s' value but there was more than a single value in the array", handledType().getName());
+            }
+            return value;
+        }
+        return readObject(p, ctxt);
+    }
+
+    /**
+     * Reads the fields of the model, the parser being positioned on the start of the object.
+     */
+    protected abstract T readObject(JsonParser p, DeserializationContext ctxt) throws IOException;
+
+    /**
+     * @return the token of the first field, or END_OBJECT for an empty object
+     */
+    protected JsonToken startObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT) {
+            return p.nextToken();
+        }
+        if (t == JsonToken.FIELD_NAME || t == JsonToken.END_OBJECT) {
+            return t;
+        }
+        ctxt.handleUnexpectedToken(handledType(), p);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <V> V read(JsonDeserializer<Object> deserializer, JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return (V) deserializer.getNullValue(ctxt);
+        }
+        return (V) deserializer.deserialize(p, ctxt);
+    }
+
+    protected String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        return read(stringDeserializer, p, ctxt);
+    }
+
+    /**
+     * @return the canonicalizer set on the reader, or null if values must not be canonicalized
+     */
+    protected static StringCanonicalizer canonicalizer(DeserializationContext ctxt) {
+        return (StringCanonicalizer) ctxt.getAttribute(StringCanonicalizer.class);
+    }
+
+    protected String readString(JsonParser p, DeserializationContext ctxt, StringCanonicalizer canonicalizer) throws IOException {
+        String value = readString(p, ctxt);
+        return canonicalizer != null && value != null ? canonicalizer.canonicalize(value) : value;
+    }
+
+    /**
+     * Reads a list of strings, canonicalizing its elements. Without canonicalizer the given deserializer is used.
+     */
+    protected List<String> readStringList(JsonParser p, DeserializationContext ctxt, StringCanonicalizer canonicalizer, JsonDeserializer<Object> deserializer) throws IOException {
+        if (canonicalizer == null || p.getCurrentToken() != JsonToken.START_ARRAY) {
+            return read(deserializer, p, ctxt);
+        }
+        List<String> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readString(p, ctxt, canonicalizer));
+        }
+        return list;
+    }
+
+    /**
+     * Reads a map of strings, canonicalizing its values. Keys are already canonicalized by the parser symbol table.
+     * Without canonicalizer the given deserializer is used.
+     */
+    protected Map<String, String> readStringMap(JsonParser p, DeserializationContext ctxt, StringCanonicalizer canonicalizer, JsonDeserializer<Object> deserializer) throws IOException {
+        if (canonicalizer == null || p.getCurrentToken() != JsonToken.START_OBJECT) {
+            return read(deserializer, p, ctxt);
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String key = p.getCurrentName();
+            p.nextToken();
+            map.put(key, readString(p, ctxt, canonicalizer));
+        }
+        return map;
+    }
+
+    /**
+     * Same as {@link #readStringMap} for maps of maps, such as devices.
+     */
+    protected Map<String, Map<String, String>> readStringMaps(JsonParser p, DeserializationContext ctxt, StringCanonicalizer canonicalizer, JsonDeserializer<Object> deserializer) throws IOException {
+        if (canonicalizer == null || p.getCurrentToken() != JsonToken.START_OBJECT) {
+            return read(deserializer, p, ctxt);
+        }
+        Map<String, Map<String, String>> map = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String key = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.VALUE_NULL) {
+                map.put(key, null);
+            } else if (t == JsonToken.START_OBJECT) {
+                map.put(key, readStringMap(p, ctxt, canonicalizer, null));
+            } else {
+                ctxt.handleUnexpectedToken(Map.class, p);
+            }
+        }
+        return map;
+    }
+
+    protected Boolean readBoolean(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        }
+        if (t == JsonToken.VALUE_FALSE) {
+            return Boolean.FALSE;
+        }
+        return read(booleanDeserializer, p, ctxt);
+    }
+
+    protected Long readLong(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return p.getLongValue();
+        }
+        return read(longDeserializer, p, ctxt);
+    }
+
+    protected Date readDate(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return read(dateDeserializer, p, ctxt);
+    }
+}
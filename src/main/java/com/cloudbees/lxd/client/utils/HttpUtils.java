@@ -26,6 +26,8 @@ package com.cloudbees.lxd.client.utils;
 
 import com.cloudbees.lxd.client.Config;
 import com.cloudbees.lxd.client.utils.unix.UnixSocketFactory;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
@@ -47,21 +49,48 @@ import java.util.concurrent.TimeUnit;
 
 public class HttpUtils {
     public static OkHttpClient createHttpClient(final Config config) {
-        OkHttpClient.Builder httpClientBuilder = createHttpClientBuilder(config);
+        return createHttpClient(config, createHttpClientBuilder(config));
+    }
 
-        // max timeout determined for /wait
+    public static OkHttpClient createHttpClient(final Config config, OkHttpClient.Builder httpClientBuilder) {
+        // long polling requests use their own client, see createLongPollHttpClient
         httpClientBuilder.readTimeout(10, TimeUnit.SECONDS);
 
-        // Log requests
-        if (config.getLogLevel() != null) {
-            httpClientBuilder.addInterceptor(new HttpLoggingInterceptor().setLevel(config.getLogLevel()));
+        // Log requests, logging is off by default and costs nothing then
+        if (config.getLogLevel() != null && config.getLogLevel() != HttpLoggingInterceptor.Level.NONE) {
+            httpClientBuilder.addInterceptor(new LoggingInterceptor(config.getLogLevel(), config.getLogBodyLimit(), config.getLogSampling()));
         }
 
         return httpClientBuilder.build();
     }
 
+    /**
+     * Creates a client for long polling requests. It shares the connection pool of the given client but has its own
+     * dispatcher and timeouts, so that parked requests don't delay the other ones.
+     * @param config the client configuration
+     * @param httpClient the client used for other requests
+     * @return the long polling client
+     */
+    public static OkHttpClient createLongPollHttpClient(final Config config, OkHttpClient httpClient) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getLongPollMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getLongPollMaxRequests());
+
+        return createLongPollHttpClient(config, httpClient, dispatcher);
+    }
+
+    public static OkHttpClient createLongPollHttpClient(final Config config, OkHttpClient httpClient, Dispatcher dispatcher) {
+        return httpClient.newBuilder()
+            .dispatcher(dispatcher)
+            .readTimeout(config.getLongPollReadTimeout(), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
     public static OkHttpClient createWsClient(final Config config) {
-        OkHttpClient.Builder httpClientBuilder = createHttpClientBuilder(config);
+        return createWsClient(config, createHttpClientBuilder(config));
+    }
+
+    public static OkHttpClient createWsClient(final Config config, OkHttpClient.Builder httpClientBuilder) {
         httpClientBuilder.readTimeout(300, TimeUnit.SECONDS);
 
         return httpClientBuilder.build();
@@ -70,6 +99,29 @@ public class HttpUtils {
     public static OkHttpClient.Builder createHttpClientBuilder(final Config config) {
         OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder();
 
+        // a client talks to a single LXD host, don't let the default per host limit throttle it
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+        httpClientBuilder.dispatcher(dispatcher);
+        httpClientBuilder.connectionPool(new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAliveDuration(), TimeUnit.MILLISECONDS));
+
+        return configureTransport(config, httpClientBuilder);
+    }
+
+    /**
+     * Creates a builder for a client sharing the dispatcher, connection pool and threads of the given client.
+     * Connections are pooled per address, which doesn't include the socket factory: clients for different unix sockets
+     * must not share a connection pool.
+     * @param config the client configuration
+     * @param sharedClient the client whose resources are shared
+     * @return the client builder
+     */
+    public static OkHttpClient.Builder createHttpClientBuilder(final Config config, OkHttpClient sharedClient) {
+        return configureTransport(config, sharedClient.newBuilder());
+    }
+
+    private static OkHttpClient.Builder configureTransport(final Config config, OkHttpClient.Builder httpClientBuilder) {
         // Follow any redirects
         httpClientBuilder.followRedirects(true);
         httpClientBuilder.followSslRedirects(true);
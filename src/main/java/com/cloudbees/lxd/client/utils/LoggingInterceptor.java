@@ -0,0 +1,258 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.utils;
+
+import okhttp3.Connection;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs HTTP exchanges like {@link HttpLoggingInterceptor}, with a few differences to keep its cost bounded:
+ * <ul>
+ *     <li>requests can be sampled per endpoint, unsampled requests go through untouched</li>
+ *     <li>response bodies aren't buffered, their first bytes are captured while the caller reads them</li>
+ *     <li>request bodies are only logged when they are smaller than the body limit</li>
+ *     <li>records are written by a background thread, records are dropped when it can't keep up</li>
+ * </ul>
+ * Nothing is allocated for a request when its endpoint isn't sampled or when the logger is disabled.
+ */
+public class LoggingInterceptor implements Interceptor {
+    private final HttpLoggingInterceptor.Level level;
+    private final long maxBodySize;
+    private final String[] samplingPrefixes;
+    private final double[] samplingRates;
+
+    /**
+     * @param level what to log, {@link HttpLoggingInterceptor.Level#NONE} logs nothing
+     * @param maxBodySize maximum number of body bytes logged per request and response
+     * @param sampling sampling rates between 0 and 1 by path prefix, the longest matching prefix wins and paths without
+     *                 a match are always logged
+     */
+    public LoggingInterceptor(HttpLoggingInterceptor.Level level, long maxBodySize, Map<String, Double> sampling) {
+        this.level = level;
+        this.maxBodySize = maxBodySize;
+
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(sampling.entrySet());
+        entries.sort(Comparator.comparingInt((Map.Entry<String, Double> e) -> e.getKey().length()).reversed());
+        this.samplingPrefixes = new String[entries.size()];
+        this.samplingRates = new double[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            samplingPrefixes[i] = entries.get(i).getKey();
+            samplingRates[i] = entries.get(i).getValue();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (level == HttpLoggingInterceptor.Level.NONE || !logger.isLoggable(Level.INFO) || !sampled(request)) {
+            return chain.proceed(request);
+        }
+
+        boolean logHeaders = level == HttpLoggingInterceptor.Level.HEADERS || level == HttpLoggingInterceptor.Level.BODY;
+        boolean logBody = level == HttpLoggingInterceptor.Level.BODY;
+
+        StringBuilder sb = new StringBuilder();
+        Connection connection = chain.connection();
+        sb.append("--> ").append(request.method()).append(' ').append(request.url());
+        if (connection != null) {
+            sb.append(' ').append(connection.protocol());
+        }
+        RequestBody requestBody = request.body();
+        if (logHeaders) {
+            appendHeaders(sb, request.headers());
+            if (logBody && requestBody != null) {
+                long contentLength = requestBody.contentLength();
+                if (contentLength >= 0 && contentLength <= maxBodySize && isText(requestBody.contentType())) {
+                    Buffer buffer = new Buffer();
+                    requestBody.writeTo(buffer);
+                    sb.append('\n').append(buffer.readUtf8());
+                } else {
+                    sb.append("\n(").append(contentLength).append("-byte body omitted)");
+                }
+            }
+            sb.append("\n--> END ").append(request.method());
+        } else if (requestBody != null) {
+            sb.append(" (").append(requestBody.contentLength()).append("-byte body)");
+        }
+        write(sb.toString());
+
+        long startNs = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            write("<-- HTTP FAILED: " + request.method() + ' ' + request.url() + ": " + e);
+            throw e;
+        }
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+
+        sb = new StringBuilder();
+        sb.append("<-- ").append(response.code()).append(' ').append(response.message())
+            .append(' ').append(request.url()).append(" (").append(tookMs).append("ms)");
+        if (!logHeaders) {
+            write(sb.toString());
+            return response;
+        }
+        appendHeaders(sb, response.headers());
+
+        ResponseBody responseBody = response.body();
+        if (!logBody || responseBody == null || !isText(responseBody.contentType())) {
+            write(sb.append("\n<-- END HTTP").toString());
+            return response;
+        }
+
+        // the body is logged once the caller is done with it
+        BodyCapturingSource source = new BodyCapturingSource(responseBody.source(), sb);
+        return response.newBuilder()
+            .body(ResponseBody.create(responseBody.contentType(), responseBody.contentLength(), Okio.buffer(source)))
+            .build();
+    }
+
+    private boolean sampled(Request request) {
+        if (samplingPrefixes.length == 0) {
+            return true;
+        }
+        String path = request.url().encodedPath();
+        for (int i = 0; i < samplingPrefixes.length; i++) {
+            if (path.startsWith(samplingPrefixes[i])) {
+                double rate = samplingRates[i];
+                return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+            }
+        }
+        return true;
+    }
+
+    private static void appendHeaders(StringBuilder sb, Headers headers) {
+        for (int i = 0, count = headers.size(); i < count; i++) {
+            sb.append('\n').append(headers.name(i)).append(": ").append(headers.value(i));
+        }
+    }
+
+    private static boolean isText(MediaType contentType) {
+        // LXD answers with JSON, file transfers are application/octet-stream
+        return contentType == null || "application".equals(contentType.type()) && contentType.subtype().endsWith("json")
+            || "text".equals(contentType.type());
+    }
+
+    private static void write(String record) {
+        Writer.EXECUTOR.execute(() -> logger.info(record));
+    }
+
+    /**
+     * Captures the first bytes of a body as they are read, then logs them when the body is exhausted or closed.
+     */
+    private class BodyCapturingSource extends ForwardingSource {
+        final Buffer captured = new Buffer();
+        final StringBuilder sb;
+        long size;
+        boolean logged;
+
+        BodyCapturingSource(Source delegate, StringBuilder sb) {
+            super(delegate);
+            this.sb = sb;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                long toCapture = Math.min(read, maxBodySize - captured.size());
+                if (toCapture > 0) {
+                    sink.copyTo(captured, sink.size() - read, toCapture);
+                }
+                size += read;
+            } else if (read == -1) {
+                log(true);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            log(false);
+            super.close();
+        }
+
+        private void log(boolean exhausted) {
+            if (logged) {
+                return;
+            }
+            logged = true;
+            // the capture may end in the middle of a code point, readUtf8 replaces it
+            sb.append('\n').append(captured.readUtf8());
+            if (size > maxBodySize) {
+                sb.append("...");
+            }
+            sb.append("\n<-- END HTTP (").append(size).append("-byte body").append(exhausted ? ")" : ", closed before its end)");
+            write(sb.toString());
+        }
+    }
+
+    /**
+     * Background thread writing the records, shared by all the clients and only started when logging is used.
+     */
+    private static class Writer {
+        static final AtomicLong DROPPED = new AtomicLong();
+        static final ExecutorService EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(4096),
+            r -> {
+                Thread thread = new Thread(r, "LXD Client logger");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (r, executor) -> {
+                if (DROPPED.getAndIncrement() % 1000 == 0) {
+                    logger.warning("Log records are produced faster than they can be written, dropping some of them");
+                }
+            });
+    }
+
+    private static final Logger logger = Logger.getLogger(LoggingInterceptor.class.getName());
+}
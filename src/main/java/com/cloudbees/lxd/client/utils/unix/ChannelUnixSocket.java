@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2016 Original Authors
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.cloudbees.lxd.client.utils.unix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * {@link Socket} connected to a unix domain socket through a {@link SocketChannel}.
+ *
+ * Subclasses only open the channel and the address for a given provider, streams and options are handled here.
+ * Streams read and write the channel directly through {@link TimedChannelIO}, without the locking done by
+ * {@link java.nio.channels.Channels} streams.
+ */
+abstract class ChannelUnixSocket extends Socket {
+
+    private final Object connectLock = new Object();
+    private final SocketAddress address;
+    private final SocketChannel channel;
+    private final TimedChannelIO io;
+    private volatile boolean inputShutdown, outputShutdown;
+
+    ChannelUnixSocket(SocketChannel channel, SocketAddress address) throws IOException {
+        if (address == null) {
+            throw new NullPointerException("address");
+        }
+        this.channel = channel;
+        this.address = address;
+        this.io = new TimedChannelIO(channel);
+    }
+
+    @Override
+    public void connect(SocketAddress endpoint) throws IOException {
+        connect(endpoint, 0);
+    }
+
+    @Override
+    public void connect(SocketAddress dummy, int timeout) throws IOException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout may not be negative: " + timeout);
+        }
+
+        synchronized (connectLock) {
+            io.connect(address, timeout);
+        }
+    }
+
+    @Override
+    public void bind(SocketAddress bindpoint) throws IOException {
+        throw new SocketException("Bind is not supported");
+    }
+
+    @Override
+    public InetAddress getInetAddress() {
+        return null;
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public int getPort() {
+        return -1;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public SocketAddress getRemoteSocketAddress() {
+        return isConnected() ? address : null;
+    }
+
+    @Override
+    public SocketAddress getLocalSocketAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketChannel getChannel() {
+        return null;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        if (!channel.isConnected()) {
+            throw new SocketException("Socket is not connected");
+        }
+
+        if (inputShutdown) {
+            throw new SocketException("Socket input is shutdown");
+        }
+
+        return io.newInputStream(this::shutdownInput);
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        if (!channel.isConnected()) {
+            throw new SocketException("Socket is not connected");
+        }
+
+        if (outputShutdown) {
+            throw new SocketException("Socket output is shutdown");
+        }
+
+        return io.newOutputStream(this::shutdownOutput);
+    }
+
+    @Override
+    public void sendUrgentData(int data) throws IOException {
+        throw new SocketException("Urgent data not supported");
+    }
+
+    @Override
+    public void setSoTimeout(int timeout) throws SocketException {
+        io.setSoTimeout(timeout);
+    }
+
+    @Override
+    public int getSoTimeout() throws SocketException {
+        return io.getSoTimeout();
+    }
+
+    @Override
+    public void setSendBufferSize(int size) throws SocketException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Send buffer size must be positive: " + size);
+        }
+
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        // just ignore
+    }
+
+    @Override
+    public synchronized int getSendBufferSize() throws SocketException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        throw new UnsupportedOperationException("Getting the send buffer size is not supported");
+    }
+
+    @Override
+    public synchronized void setReceiveBufferSize(int size) throws SocketException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Receive buffer size must be positive: " + size);
+        }
+
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        // just ignore
+    }
+
+    @Override
+    public synchronized int getReceiveBufferSize() throws SocketException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        throw new UnsupportedOperationException("Getting the receive buffer size is not supported");
+    }
+
+    @Override
+    public void setKeepAlive(boolean on) throws SocketException {
+        // not meaningful for unix sockets, just ignore
+    }
+
+    @Override
+    public boolean getKeepAlive() throws SocketException {
+        return false;
+    }
+
+    @Override
+    public void setTrafficClass(int tc) throws SocketException {
+        if (tc < 0 || tc > 255) {
+            throw new IllegalArgumentException("Traffic class is not in range 0 -- 255: " + tc);
+        }
+
+        if (isClosed()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        // just ignore
+    }
+
+    @Override
+    public int getTrafficClass() throws SocketException {
+        throw new UnsupportedOperationException("Getting the traffic class is not supported");
+    }
+
+    @Override
+    public void setReuseAddress(boolean on) throws SocketException {
+        if (isClosed()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        // just ignore
+    }
+
+    @Override
+    public boolean getReuseAddress() throws SocketException {
+        throw new UnsupportedOperationException("Getting the SO_REUSEADDR option is not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        io.close();
+        channel.close();
+        inputShutdown = true;
+        outputShutdown = true;
+    }
+
+    @Override
+    public void shutdownInput() throws IOException {
+        channel.shutdownInput();
+        inputShutdown = true;
+    }
+
+    @Override
+    public void shutdownOutput() throws IOException {
+        channel.shutdownOutput();
+        outputShutdown = true;
+    }
+
+    @Override
+    public String toString() {
+        if (isConnected()) {
+            return "UnixSocket[addr=" + address + ']';
+        }
+
+        return "UnixSocket[unconnected]";
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public boolean isBound() {
+        return false;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return outputShutdown;
+    }
+
+    @Override
+    public void setPerformancePreferences(int connectionTime, int latency, int bandwidth) {
+        // no-op
+    }
+}
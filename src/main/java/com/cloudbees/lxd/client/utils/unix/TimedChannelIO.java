@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.utils.unix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking connect, reads and writes with deadlines on top of a non blocking socket channel. Blocking channels
+ * ignore socket timeouts, so a wedged LXD daemon would otherwise block OkHttp threads forever.
+ *
+ * Reads and writes wait on their own selector, as websockets read and write from different threads.
+ */
+final class TimedChannelIO implements Closeable {
+    private final SocketChannel channel;
+    private final Object readLock = new Object();
+    private final Object writeLock = new Object();
+    private volatile Selector readSelector, writeSelector;
+    private volatile int soTimeout;
+
+    TimedChannelIO(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(false);
+    }
+
+    int getSoTimeout() {
+        return soTimeout;
+    }
+
+    void setSoTimeout(int soTimeout) {
+        if (soTimeout < 0) {
+            throw new IllegalArgumentException("Timeout may not be negative: " + soTimeout);
+        }
+        this.soTimeout = soTimeout;
+    }
+
+    /**
+     * @param address address to connect to
+     * @param timeout connect timeout in milliseconds, 0 to wait forever
+     */
+    void connect(SocketAddress address, int timeout) throws IOException {
+        if (channel.connect(address)) {
+            return;
+        }
+        Selector selector = channel.provider().openSelector();
+        try {
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            long deadline = deadline(timeout);
+            while (!channel.finishConnect()) {
+                select(selector, deadline, "Connect timed out");
+            }
+        } finally {
+            selector.close();
+        }
+    }
+
+    int read(ByteBuffer dst) throws IOException {
+        synchronized (readLock) {
+            int n = channel.read(dst);
+            if (n != 0 || !dst.hasRemaining()) {
+                return n;
+            }
+            if (readSelector == null) {
+                readSelector = channel.provider().openSelector();
+                channel.register(readSelector, SelectionKey.OP_READ);
+            }
+            long deadline = deadline(soTimeout);
+            while (true) {
+                select(readSelector, deadline, "Read timed out");
+                n = channel.read(dst);
+                if (n != 0) {
+                    return n;
+                }
+            }
+        }
+    }
+
+    void write(ByteBuffer src) throws IOException {
+        synchronized (writeLock) {
+            channel.write(src);
+            if (!src.hasRemaining()) {
+                return;
+            }
+            if (writeSelector == null) {
+                writeSelector = channel.provider().openSelector();
+                channel.register(writeSelector, SelectionKey.OP_WRITE);
+            }
+            long deadline = deadline(soTimeout);
+            while (src.hasRemaining()) {
+                select(writeSelector, deadline, "Write timed out");
+                channel.write(src);
+            }
+        }
+    }
+
+    InputStream newInputStream(Closeable onClose) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                return n < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                return TimedChannelIO.this.read(ByteBuffer.wrap(b, off, len));
+            }
+
+            @Override
+            public void close() throws IOException {
+                onClose.close();
+            }
+        };
+    }
+
+    OutputStream newOutputStream(Closeable onClose) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                TimedChannelIO.this.write(ByteBuffer.wrap(b, off, len));
+            }
+
+            @Override
+            public void close() throws IOException {
+                onClose.close();
+            }
+        };
+    }
+
+    /**
+     * Closes the selectors, which wakes up threads blocked on them
+     */
+    @Override
+    public void close() throws IOException {
+        Selector selector = readSelector;
+        if (selector != null) {
+            selector.close();
+        }
+        selector = writeSelector;
+        if (selector != null) {
+            selector.close();
+        }
+    }
+
+    private static long deadline(int timeout) {
+        return timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+    }
+
+    private static void select(Selector selector, long deadline, String timeoutMessage) throws IOException {
+        long timeout = 0;
+        if (deadline > 0) {
+            timeout = deadline - System.currentTimeMillis();
+            if (timeout <= 0) {
+                throw new SocketTimeoutException(timeoutMessage);
+            }
+        }
+        try {
+            selector.select(timeout);
+            selector.selectedKeys().clear();
+        } catch (ClosedSelectorException e) {
+            throw new SocketException("Socket closed");
+        }
+    }
+}
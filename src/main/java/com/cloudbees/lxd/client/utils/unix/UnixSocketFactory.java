@@ -33,8 +33,14 @@ public class UnixSocketFactory extends SocketFactory {
         this.path = path;
     }
 
+    /**
+     * Uses the native unix domain socket support of the JVM when available (Java 16+), and jnr-unixsocket otherwise
+     */
     @Override
     public Socket createSocket() throws IOException {
+        if (NioUnixSocket.isSupported()) {
+            return new NioUnixSocket(path);
+        }
         return new JnrUnixSocket(new UnixSocketAddress(new File(path)));
     }
 
@@ -25,17 +25,66 @@
 package com.cloudbees.lxd.client;
 
 import com.cloudbees.lxd.client.api.Container;
+import com.cloudbees.lxd.client.api.ContainerPut;
+import com.cloudbees.lxd.client.api.ContainerView;
 import com.cloudbees.lxd.client.api.Image;
+import com.cloudbees.lxd.client.api.Operation;
+import com.cloudbees.lxd.client.api.Profile;
+import com.cloudbees.lxd.client.api.ProfilePut;
+import com.cloudbees.lxd.client.api.ResponseType;
 import com.cloudbees.lxd.client.api.Server;
 import com.cloudbees.lxd.client.api.StatusCode;
+import com.cloudbees.lxd.client.api.codec.Projection;
+import com.cloudbees.lxd.client.utils.LoggingInterceptor;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subscribers.TestSubscriber;
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.logging.HttpLoggingInterceptor;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class LxdClientTest {
@@ -57,6 +106,356 @@ public class LxdClientTest {
         }
     }
 
+    @Test
+    public void malformedResponseTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder().dispatchJsonString("/1.0", "{\"type\": \"sync\", \"metadata\": {\"api_version\": ").build();
+            LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            try {
+                client.server().blockingGet();
+                fail();
+            } catch (LxdClientException e) {
+                // the start of the body is kept for the error message
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("Body: {\"type\": \"sync\""));
+            }
+        }
+    }
+
+    @Test
+    public void errorBodyIsBoundedTest() throws Exception {
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 1024 * 1024) {
+            body.append("internal error ");
+        }
+        try (
+            TestHelper t = new TestHelper.Builder().dispatchForUrl("/1.0", r -> new MockResponse().setResponseCode(500).setBody(body.toString())).build();
+            LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            try {
+                client.server().blockingGet();
+                fail();
+            } catch (LxdClientException e) {
+                Assert.assertTrue(e.getMessage().length() < 8 * 1024);
+                Assert.assertTrue(e.getBody(), e.getBody().startsWith("internal error"));
+                Assert.assertTrue(e.getBody(), e.getBody().endsWith("..."));
+                assertEquals(Integer.valueOf(500), e.getHttpStatus());
+                assertEquals("GET", e.getMethod());
+                Assert.assertTrue(e.getUrl(), e.getUrl().endsWith("/1.0"));
+                assertNull(e.getOperationId());
+            }
+        }
+    }
+
+    @Test
+    public void loggingTest() throws Exception {
+        BlockingQueue<String> records = new LinkedBlockingQueue<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(LoggingInterceptor.class.getName());
+        logger.addHandler(handler);
+        try (
+            TestHelper t = new TestHelper.Builder()
+                .dispatchJsonFile("/1.0", "server-trusted.json")
+                .dispatchJsonFile("/1.0/images?recursion=1", "listImages.json").build();
+            LxdClient client = new LxdClient(t.getConfig()
+                .withLogLevel(HttpLoggingInterceptor.Level.BODY)
+                .withLogBodyLimit(16)
+                .withLogSampling("/1.0/images", 0))
+        ) {
+            client.images().blockingGet();
+            client.server().blockingGet();
+
+            // records are written in order, the images requests aren't sampled
+            String request = records.poll(5, TimeUnit.SECONDS);
+            Assert.assertTrue(request, request.startsWith("--> GET " + t.baseUrl + "1.0"));
+            String response = records.poll(5, TimeUnit.SECONDS);
+            Assert.assertTrue(response, response.startsWith("<-- 200 OK " + t.baseUrl + "1.0"));
+            Assert.assertTrue(response, response.contains("...\n<-- END HTTP ("));
+            assertNull(records.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    @Test
+    public void sharedTransportTest() throws Exception {
+        try (
+            TestHelper t1 = new TestHelper.Builder().dispatchJsonFile("/1.0", "server-trusted.json").build();
+            TestHelper t2 = new TestHelper.Builder().dispatchJsonFile("/1.0", "server-trusted.json").build();
+            LxdClientFactory factory = new LxdClientFactory()
+        ) {
+            LxdClient client1 = factory.newClient(t1.getConfig());
+            LxdClient client2 = factory.newClient(t2.getConfig());
+            assertSame(client1.rxClient.client.dispatcher(), client2.rxClient.client.dispatcher());
+            assertSame(client1.rxClient.client.connectionPool(), client2.rxClient.client.connectionPool());
+
+            assertEquals("1.0", client1.server().blockingGet().getApiVersion());
+            // closing a client leaves the shared transport usable by the other ones
+            client1.close();
+            assertEquals("1.0", client2.server().blockingGet().getApiVersion());
+            client2.close();
+
+            assertEquals("/1.0", t1.server.takeRequest().getPath());
+            assertEquals("/1.0", t2.server.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    public void unixSocketTransportTest() throws Exception {
+        try (
+            UnixHttpServer server1 = new UnixHttpServer("1.0-a");
+            UnixHttpServer server2 = new UnixHttpServer("1.0-b");
+            LxdClientFactory factory = new LxdClientFactory()
+        ) {
+            LxdClient client1 = factory.newClient(Config.localAccessConfig(server1.path));
+            LxdClient client2 = factory.newClient(Config.localAccessConfig(server2.path));
+            assertNotSame(client1.rxClient.client.connectionPool(), client2.rxClient.client.connectionPool());
+            assertNotSame(client1.rxClient.client.dispatcher(), client2.rxClient.client.dispatcher());
+
+            // both sockets are addressed as localhost, the idle connection to the first one must not be reused
+            assertEquals("1.0-a", client1.server().blockingGet().getApiVersion());
+            assertEquals("1.0-b", client2.server().blockingGet().getApiVersion());
+            assertEquals("1.0-a", client1.server().blockingGet().getApiVersion());
+
+            // clients of the same socket share its transport
+            LxdClient client3 = factory.newClient(Config.localAccessConfig(server1.path));
+            assertSame(client1.rxClient.client.connectionPool(), client3.rxClient.client.connectionPool());
+        }
+    }
+
+    /**
+     * Answers every request on a unix socket with the same server info, keeping connections alive.
+     */
+    static class UnixHttpServer implements AutoCloseable {
+        final String path;
+        final UnixServerSocketChannel channel;
+
+        UnixHttpServer(String apiVersion) throws IOException {
+            File file = File.createTempFile("lxd", ".socket");
+            file.delete();
+            file.deleteOnExit();
+            this.path = file.getAbsolutePath();
+            this.channel = UnixServerSocketChannel.open();
+            channel.socket().bind(new UnixSocketAddress(file));
+
+            byte[] body = ("{\"type\": \"sync\", \"status\": \"Success\", \"status_code\": 200, \"metadata\": {\"api_version\": \"" + apiVersion + "\"}}").getBytes(StandardCharsets.UTF_8);
+            byte[] response = ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        UnixSocketChannel connection = channel.accept();
+                        Thread handler = new Thread(() -> {
+                            try (
+                                BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8));
+                                OutputStream out = Channels.newOutputStream(connection)
+                            ) {
+                                String line;
+                                while ((line = in.readLine()) != null) {
+                                    if (line.isEmpty()) {
+                                        out.write(response);
+                                        out.write(body);
+                                        out.flush();
+                                    }
+                                }
+                            } catch (IOException e) {
+                                // connection closed
+                            }
+                        });
+                        handler.setDaemon(true);
+                        handler.start();
+                    }
+                } catch (IOException e) {
+                    // server closed
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            new File(path).delete();
+        }
+    }
+
+    @Test
+    public void requestCoalescingTest() throws Exception {
+        TestHelper.Builder builder = new TestHelper.Builder();
+        Buffer body = builder.fillBufferFromResource("server-trusted.json");
+        try (
+            TestHelper t = builder
+                .dispatchForUrl("/1.0", r -> TestHelper.Builder.buildMockForJson(body.clone(), 200).setBodyDelay(200, TimeUnit.MILLISECONDS))
+                .dispatchForUrl("/1.0", r -> TestHelper.Builder.buildMockForJson(body.clone(), 200))
+                .build();
+            LxdClient client = new LxdClient(t.getConfig().withRequestCoalescing(true))
+        ) {
+            List<Single<Server>> calls = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                calls.add(client.server());
+            }
+            // each caller gets its own copy
+            List<Object> servers = Single.zip(calls, Arrays::asList).blockingGet();
+            assertEquals(10, new HashSet<>(servers.stream().map(System::identityHashCode).collect(Collectors.toList())).size());
+            assertEquals(1, t.server.getRequestCount());
+
+            // a request sent once the shared one completed isn't coalesced
+            assertEquals("1.0", client.server().blockingGet().getApiVersion());
+            assertEquals(2, t.server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void coalescedRequestCancelTest() throws Exception {
+        TestHelper.Builder builder = new TestHelper.Builder();
+        Buffer body = builder.fillBufferFromResource("server-trusted.json");
+        try (
+            TestHelper t = builder
+                .dispatchForUrl("/1.0", r -> TestHelper.Builder.buildMockForJson(body.clone(), 200).setBodyDelay(5, TimeUnit.SECONDS))
+                .build();
+            LxdClient client = new LxdClient(t.getConfig().withRequestCoalescing(true))
+        ) {
+            Disposable first = client.server().subscribe(s -> {}, e -> {});
+            Disposable second = client.server().subscribe(s -> {}, e -> {});
+            t.server.takeRequest();
+            okhttp3.Dispatcher dispatcher = client.rxClient.client.dispatcher();
+            assertEquals(1, dispatcher.runningCallsCount());
+
+            // the call is shared until its last subscriber is gone
+            first.dispose();
+            assertEquals(1, dispatcher.runningCallsCount());
+            second.dispose();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (dispatcher.runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, dispatcher.runningCallsCount());
+            assertTrue(client.rxClient.inFlight.isEmpty());
+        }
+    }
+
+    @Test
+    public void serverSnapshotTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder()
+                .dispatchJsonString("/1.0", "{\"type\": \"sync\", \"metadata\": {\"api_version\": \"1.0\", \"api_extensions\": [\"file_append\"]}}")
+                .dispatchJsonString("/1.0/containers/c1/files?path=/tmp/log", "{\"type\": \"sync\", \"metadata\": {}}")
+                .build();
+            LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            assertTrue(client.supports(Server.EXTENSION_FILE_APPEND).blockingGet());
+            assertFalse(client.supports(Server.EXTENSION_CONTAINER_EXEC_RECORDING).blockingGet());
+            client.container("c1").fileAppend("/tmp/log", 0, 0, "0644", RequestBody.create(MediaType.parse("text/plain"), "line\n")).blockingAwait();
+
+            // the snapshot was only fetched once
+            assertEquals("/1.0", t.server.takeRequest().getPath());
+            RecordedRequest append = t.server.takeRequest();
+            assertEquals("append", append.getHeader("X-LXD-write"));
+            assertEquals(2, t.server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void executeBufferedTest() throws Exception {
+        String stdoutLog = "/1.0/containers/it-exec/logs/exec_5c0b4a5e.stdout";
+        String stderrLog = "/1.0/containers/it-exec/logs/exec_5c0b4a5e.stderr";
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonString("/1.0", "{\"type\": \"sync\", \"metadata\": {\"api_extensions\": [\"container_exec_recording\"]}}")
+            .dispatchJsonFile("/1.0/containers/it-exec/exec", "operations/exec-record/operation-created.json", 202)
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/exec-record/operations-success.json")
+            // logs are read then deleted
+            .dispatchForUrl(stdoutLog, r -> new MockResponse().setBody("hello"))
+            .dispatchJsonString(stdoutLog, "{\"type\": \"sync\", \"metadata\": {}}")
+            .dispatchForUrl(stderrLog, r -> new MockResponse().setBody("oops"))
+            .dispatchJsonString(stderrLog, "{\"type\": \"sync\", \"metadata\": {}}")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withOperationPollInterval(100, TimeUnit.MILLISECONDS))
+        ) {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            Integer exitCode = client.container("it-exec").executeBuffered(Arrays.asList("ls", "/nope"), new HashMap<>(), stdout, stderr).blockingGet();
+
+            assertEquals(Integer.valueOf(3), exitCode);
+            assertEquals("hello", stdout.toString("UTF-8"));
+            assertEquals("oops", stderr.toString("UTF-8"));
+
+            List<String> requests = new ArrayList<>();
+            for (int i = 0; i < t.server.getRequestCount(); i++) {
+                RecordedRequest request = t.server.takeRequest();
+                requests.add(request.getMethod() + " " + request.getPath());
+                if (request.getPath().endsWith("/exec")) {
+                    assertTrue(request.getBody().readUtf8().contains("\"record-output\":true"));
+                }
+            }
+            // the operation is tracked instead of long polled
+            assertFalse(requests.toString(), requests.stream().anyMatch(r -> r.contains("/wait")));
+            assertTrue(requests.toString(), requests.containsAll(Arrays.asList(
+                "GET " + stdoutLog, "DELETE " + stdoutLog, "GET " + stderrLog, "DELETE " + stderrLog)));
+        }
+    }
+
+    @Test
+    public void executeBufferedFallbackTest() throws Exception {
+        Path journal = Files.createTempFile("operations", ".journal");
+        String operationUrl = "/1.0/operations/bafce5c9-837f-422e-bb95-28a241b53add";
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonString("/1.0", "{\"type\": \"sync\", \"metadata\": {\"api_extensions\": []}}")
+            .dispatchJsonFile("/1.0/containers/it-exec/exec", "operations/exec/operation-created.json", 202)
+            .dispatchForUrl(operationUrl + "/websocket?secret=7d43af3717e61c515390ed893455914a781c61784c1785e92e916fdb1818c037", r -> execWebSocket(null))
+            .dispatchForUrl(operationUrl + "/websocket?secret=bdbbd60afce9134eea7d383ff66533b6777773d90f90f5d1895331abc1920d5a", r -> execWebSocket("hello"))
+            .dispatchForUrl(operationUrl + "/websocket?secret=38f5331b65df185542f7bde7f9ad78f2dca3edd1c76ff1ae863585afda34209e", r -> execWebSocket(null))
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/exec/operations-success.json")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withOperationPollInterval(100, TimeUnit.MILLISECONDS).withOperationJournal(journal))
+        ) {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            Integer exitCode = client.container("it-exec").executeBuffered(Arrays.asList("echo", "hello"), new HashMap<>(), stdout, null).blockingGet();
+
+            assertEquals(Integer.valueOf(0), exitCode);
+            assertEquals("hello", stdout.toString("UTF-8"));
+            // the operation is waited for through the tracker, which records its end in the journal
+            assertTrue(client.operationJournal.pending().isEmpty());
+            for (int i = 0; i < t.server.getRequestCount(); i++) {
+                RecordedRequest request = t.server.takeRequest();
+                assertFalse(request.getPath().contains("/wait"));
+                if (request.getPath().endsWith("/exec")) {
+                    assertFalse(request.getBody().readUtf8().contains("record-output"));
+                }
+            }
+        } finally {
+            Files.delete(journal);
+        }
+    }
+
+    /**
+     * A websocket of an exec operation, sending the given output then the end of stream text message before closing
+     */
+    private static MockResponse execWebSocket(String output) {
+        return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                if (output != null) {
+                    webSocket.send(ByteString.encodeUtf8(output));
+                }
+                webSocket.send("");
+                webSocket.close(1000, null);
+            }
+        });
+    }
+
     @Test
     public void serverStateFailingTest() throws Exception {
         try (
@@ -76,10 +475,10 @@ public class LxdClientTest {
     public void containerStartTest() throws Exception {
         try (TestHelper t = new TestHelper.Builder().dispatchJsonFile("/1.0/containers/it-957d09c12a9", "operations/start/container.json")
             .dispatchJsonFile("/1.0/containers/it-957d09c12a9/state", "operations/start/state.json", 202)
-            .dispatchJsonFile("/1.0/operations/f96471ce-5689-433b-b382-cd1f5fbc669c/wait?timeout=1", "operations/start/operation-in-progress.json")
-            .dispatchJsonFile("/1.0/operations/f96471ce-5689-433b-b382-cd1f5fbc669c/wait?timeout=1", "operations/start/operation.json")
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/start/operations-running.json")
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/start/operations-success.json")
             .build();
-             LxdClient client = new LxdClient(t.getConfig())
+             LxdClient client = new LxdClient(t.getConfig().withOperationPollInterval(100, TimeUnit.MILLISECONDS))
         ) {
             LxdClient.ContainerClient containerClient = client.container("it-957d09c12a9");
             Container container = containerClient.info().blockingGet();
@@ -88,6 +487,128 @@ public class LxdClientTest {
         }
     }
 
+    @Test
+    public void containerStartLongPollTest() throws Exception {
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonFile("/1.0/containers/it-957d09c12a9/state", "operations/start/state.json", 202)
+            .dispatchJsonFile("/1.0/operations/f96471ce-5689-433b-b382-cd1f5fbc669c/wait?timeout=1", "operations/start/operation.json")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withMaxTrackedOperations(0))
+        ) {
+            // above the tracking limit, operations are long polled one by one
+            client.container("it-957d09c12a9").start().blockingAwait();
+
+            assertEquals("/1.0/containers/it-957d09c12a9/state", t.server.takeRequest().getPath());
+            assertEquals("/1.0/operations/f96471ce-5689-433b-b382-cd1f5fbc669c/wait?timeout=1", t.server.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    public void containerStartFailureTest() throws Exception {
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonFile("/1.0/containers/it-957d09c12a9/state", "operations/start/state.json", 202)
+            .dispatchJsonString("/1.0/operations/f96471ce-5689-433b-b382-cd1f5fbc669c/wait?timeout=1",
+                "{\"type\": \"sync\", \"metadata\": {\"id\": \"f96471ce-5689-433b-b382-cd1f5fbc669c\", \"status\": \"Failure\", \"status_code\": 400, \"err\": \"no such image\"}}")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withMaxTrackedOperations(0))
+        ) {
+            try {
+                client.container("it-957d09c12a9").start().blockingAwait();
+                fail();
+            } catch (LxdClientException e) {
+                // the failed operation identifies the failure
+                assertEquals("f96471ce-5689-433b-b382-cd1f5fbc669c", e.getOperationId());
+                assertTrue(e.getMessage(), e.getMessage().contains("no such image"));
+            }
+        }
+    }
+
+    @Test
+    public void unwatchedOperationIsNotJournaledTest() throws Exception {
+        Path journal = Files.createTempFile("operations", ".journal");
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonFile("/1.0/containers/it-957d09c12a9/state", "operations/start/state.json", 202)
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withOperationJournal(journal))
+        ) {
+            // nobody waits for the operation, it would never be recorded as finished
+            client.rxClient.put("1.0/containers/it-957d09c12a9/state", RequestBody.create(MediaType.parse("application/json"), "{}")).build()
+                .map(rp -> rp.parseOperation(ResponseType.ASYNC, 202))
+                .blockingGet();
+        }
+
+        try (OperationJournal reopened = OperationJournal.open(journal)) {
+            assertTrue(reopened.pending().isEmpty());
+        } finally {
+            Files.delete(journal);
+        }
+    }
+
+    @Test
+    public void containerStartWithEventsTest() throws Exception {
+        TestHelper.Builder builder = new TestHelper.Builder();
+        String event = builder.fillBufferFromResource("operations/events/operation-success.json").readUtf8();
+
+        try (TestHelper t = builder
+            .dispatchForUrl("/1.0/events?type=operation", r -> new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    webSocket.send(event);
+                }
+            }))
+            .dispatchJsonFile("/1.0/containers/it-957d09c12a9/state", "operations/start/state.json", 202)
+            .dispatchJsonFile("/1.0/operations/f96471ce-5689-433b-b382-cd1f5fbc669c", "operations/start/operation-in-progress.json")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withOperationEvents(true))
+        ) {
+            client.container("it-957d09c12a9").start().blockingAwait();
+
+            for (int i = 0; i < t.server.getRequestCount(); i++) {
+                assertFalse(t.server.takeRequest().getPath().contains("/wait"));
+            }
+        }
+    }
+
+    @Test
+    public void containerInitProgressTest() throws Exception {
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonFile("/1.0/containers", "operations/init/operation-created.json", 202)
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/init/operations-progress-10.json")
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/init/operations-progress-60.json")
+            .dispatchJsonFile("/1.0/operations?recursion=1", "operations/init/operations-success.json")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig().withOperationPollInterval(100, TimeUnit.MILLISECONDS))
+        ) {
+            List<Operation> states = client.container("it-init").initWithProgress("ubuntu", "16.04", new ContainerPut())
+                .toList().blockingGet();
+
+            assertEquals(3, states.size());
+            assertEquals("rootfs: 10% (12.40MB/s)", states.get(0).getMetadata().get("download_progress"));
+            assertEquals("rootfs: 60% (14.10MB/s)", states.get(1).getMetadata().get("download_progress"));
+            assertEquals(StatusCode.Success, states.get(2).getStatusCode());
+        }
+    }
+
+    @Test
+    public void disposedOperationIsCancelledTest() throws Exception {
+        try (TestHelper t = new TestHelper.Builder()
+            .dispatchJsonFile("/1.0/containers", "operations/cancel/operation-created.json", 202)
+            .dispatchJsonFile("/1.0/operations/3b6b7d4f-8f2c-4a5e-9c0d-1c1e7b5f7a21", "operations/cancel/operation-deleted.json")
+            .build();
+             LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            // take(1) disposes the subscription before the operation completes
+            Operation first = client.container("it-init").initWithProgress("ubuntu", "16.04", new ContainerPut())
+                .take(1).blockingFirst();
+            assertEquals(StatusCode.Running, first.getStatusCode());
+
+            assertEquals("POST", t.server.takeRequest().getMethod());
+            RecordedRequest cancel = t.server.takeRequest(5, TimeUnit.SECONDS);
+            assertEquals("DELETE", cancel.getMethod());
+            assertEquals("/1.0/operations/3b6b7d4f-8f2c-4a5e-9c0d-1c1e7b5f7a21", cancel.getPath());
+        }
+    }
+
     @Test
     public void imagesListTest() throws Exception {
         try (
@@ -103,4 +624,189 @@ public class LxdClientTest {
             assertEquals("ubuntu", first.getAliases().get(0).getName());
         }
     }
+
+    @Test
+    public void cachingClientTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder()
+                .dispatchJsonFile("/1.0/containers?recursion=1", "containers.json")
+                .dispatchJsonString("/1.0/containers/it-second", "{\"type\": \"sync\", \"metadata\": {\"name\": \"it-second\"}}")
+                .dispatchJsonString("/1.0/profiles?recursion=1", "{\"type\": \"sync\", \"metadata\": [{\"name\": \"default\"}, {\"name\": \"web\"}, {\"name\": \"my web\"}]}")
+                .dispatchJsonString("/1.0/profiles/web", "{\"type\": \"sync\", \"metadata\": {}}")
+                .dispatchForUrl("/1.0/profiles/web", r -> TestHelper.Builder.buildMockForJson(new Buffer().writeUtf8("{\"type\": \"error\", \"error\": \"not found\", \"error_code\": 404}"), 404))
+                .dispatchForUrl("/1.0/profiles/my%20web", r -> TestHelper.Builder.buildMockForJson(new Buffer().writeUtf8("{\"type\": \"error\", \"error\": \"not found\", \"error_code\": 404}"), 404))
+                .build();
+            CachingLxdClient client = new CachingLxdClient(t.getConfig())
+        ) {
+            assertEquals(2, client.containers().blockingGet().size());
+            // served from the inventory, the containers were only listed once
+            assertEquals(2, client.containers().blockingGet().size());
+            assertEquals("it-second", client.container("it-second").info().blockingGet().getName());
+            assertNull(client.container("missing").info().blockingGet());
+            assertEquals(1, countRequests(t, "/1.0/containers?recursion=1"));
+
+            assertEquals(3, client.profiles().blockingGet().size());
+            client.profile("web").delete().blockingAwait();
+            // only the deleted profile is reloaded, and isn't found anymore
+            assertEquals(2, client.profiles().blockingGet().size());
+
+            // resource URLs of operations are escaped
+            Operation operation = new Operation();
+            operation.setResources(Collections.singletonMap("profiles", Collections.singletonList("/1.0/profiles/my%20web")));
+            client.invalidate(operation);
+            List<Profile> profiles = client.profiles().blockingGet();
+            assertEquals(1, profiles.size());
+            assertEquals("default", profiles.get(0).getName());
+        }
+    }
+
+    @Test
+    public void cachingClientETagTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder()
+                .dispatchJsonString("/1.0/profiles?recursion=1", "{\"type\": \"sync\", \"metadata\": [{\"name\": \"web\"}]}")
+                .dispatchForUrl("/1.0/profiles/web", r -> TestHelper.Builder.buildMockForJson(new Buffer().writeUtf8("{\"type\": \"sync\", \"metadata\": {\"name\": \"web\"}}"), 200).setHeader("ETag", "\"v1\""))
+                .dispatchJsonString("/1.0/profiles/web", "{\"type\": \"sync\", \"metadata\": {}}")
+                .build();
+            CachingLxdClient client = new CachingLxdClient(t.getConfig())
+        ) {
+            assertNull(client.profiles().blockingGet().get(0).getETag());
+
+            // the listed profile has no ETag, it is loaded on its own then served from the inventory
+            Profile profile = client.profile("web").info().blockingGet();
+            assertEquals("\"v1\"", profile.getETag());
+            assertSame(profile, client.profile("web").info().blockingGet());
+
+            client.profile("web").update(new ProfilePut(), profile.getETag()).blockingAwait();
+
+            RecordedRequest request;
+            int gets = 0;
+            while (!"PUT".equals((request = t.server.takeRequest()).getMethod())) {
+                if ("/1.0/profiles/web".equals(request.getPath())) {
+                    gets++;
+                }
+            }
+            assertEquals(1, gets);
+            assertEquals("\"v1\"", request.getHeader("If-Match"));
+        }
+    }
+
+    @Test
+    public void etagTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder()
+                .dispatchForUrl("/1.0/profiles/web", r -> TestHelper.Builder.buildMockForJson(new Buffer().writeUtf8("{\"type\": \"sync\", \"metadata\": {\"name\": \"web\"}}"), 200).setHeader("ETag", "\"v1\""))
+                .dispatchJsonString("/1.0/profiles/web", "{\"type\": \"sync\", \"metadata\": {}}")
+                .dispatchForUrl("/1.0/profiles/web", r -> TestHelper.Builder.buildMockForJson(new Buffer().writeUtf8("{\"type\": \"error\", \"error\": \"ETag doesn't match\", \"error_code\": 412}"), 412))
+                .build();
+            LxdClient client = new LxdClient(t.getConfig().withETagTracking(16))
+        ) {
+            Profile profile = client.profile("web").info().blockingGet();
+            assertEquals("\"v1\"", profile.getETag());
+
+            // the ETag read is sent with the update
+            client.profile("web").update(new ProfilePut()).blockingAwait();
+            // then forgotten as the update changed it, an explicit one can still be given
+            try {
+                client.profile("web").update(new ProfilePut(), "\"v0\"").blockingAwait();
+                fail();
+            } catch (LxdClientException e) {
+                assertEquals(Integer.valueOf(412), e.getHttpStatus());
+            }
+
+            assertNull(t.server.takeRequest().getHeader("If-Match"));
+            assertEquals("\"v1\"", t.server.takeRequest().getHeader("If-Match"));
+            assertEquals("\"v0\"", t.server.takeRequest().getHeader("If-Match"));
+        }
+    }
+
+    private static int countRequests(TestHelper t, String path) throws InterruptedException {
+        int count = 0;
+        RecordedRequest request;
+        while ((request = t.server.takeRequest(0, TimeUnit.SECONDS)) != null) {
+            if (path.equals(request.getPath())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void aliasCacheTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder()
+                .dispatchJsonFile("/1.0/images/aliases/ubuntu", "images_aliases_ubuntu.json")
+                .dispatchForUrl("/1.0/images/aliases/missing", r -> TestHelper.Builder.buildMockForJson(new Buffer().writeUtf8("{\"type\": \"error\", \"error\": \"not found\", \"error_code\": 404}"), 404))
+                .build();
+            LxdClient client = new LxdClient(t.getConfig().withAliasCache(1, 1, TimeUnit.MINUTES))
+        ) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("6f25adef061c3f2186c6910bff8cacd0c63e1493e3f8b616e52eb84076890bd1", client.alias("ubuntu").blockingGet().getTarget());
+                assertNull(client.alias("missing").blockingGet());
+            }
+            assertEquals(2, t.server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void imagesStreamTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder().dispatchJsonFile("/1.0/images?recursion=1", "listImages.json").build();
+            LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            List<Image> images = client.imagesStream().toList().blockingGet();
+
+            assertEquals(1, images.size());
+            Image first = images.get(0);
+            assertEquals("6f25adef061c3f2186c6910bff8cacd0c63e1493e3f8b616e52eb84076890bd1", first.getFingerprint());
+            assertEquals("ubuntu", first.getAliases().get(0).getName());
+        }
+    }
+
+    @Test
+    public void containersStreamBackpressureTest() throws Exception {
+        int count = 20000;
+        StringBuilder body = new StringBuilder("{\"type\": \"sync\", \"status_code\": 200, \"metadata\": [");
+        for (int i = 0; i < count; i++) {
+            body.append(i > 0 ? ", " : "").append("{\"name\": \"c").append(i).append("\", \"status\": \"Running\", \"status_code\": 103}");
+        }
+        body.append("]}");
+        try (
+            TestHelper t = new TestHelper.Builder().dispatchJsonString("/1.0/containers?recursion=1", body.toString()).build();
+            LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            // the body is still read once the call emitted its response, as elements are requested
+            LxdResponseParser rp = client.rxClient.get("1.0/containers?recursion=1").build().blockingGet();
+            assertFalse(rp.call.isCanceled());
+            TestSubscriber<Container> subscriber = rp.parseSyncStream(Container.class).test(1);
+            Thread.sleep(100);
+            while (subscriber.valueCount() < count && subscriber.errorCount() == 0) {
+                subscriber.request(1000);
+                Thread.sleep(10);
+            }
+            subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+            subscriber.assertNoErrors();
+            subscriber.assertValueCount(count);
+            assertEquals("c19999", subscriber.values().get(count - 1).getName());
+        }
+    }
+
+    @Test
+    public void containersProjectionTest() throws Exception {
+        try (
+            TestHelper t = new TestHelper.Builder().dispatchJsonFile("/1.0/containers?recursion=1", "containers.json").build();
+            LxdClient client = new LxdClient(t.getConfig())
+        ) {
+            List<ContainerView> containers = client.containers(Projection.of("name", "statusCode")).blockingGet();
+
+            assertEquals(2, containers.size());
+            assertEquals("it-957d09c12a9", containers.get(0).getName());
+            assertEquals(StatusCode.Stopped, containers.get(0).getStatusCode());
+            assertEquals("it-second", containers.get(1).getName());
+            assertEquals(StatusCode.Running, containers.get(1).getStatusCode());
+            // not projected
+            assertNull(containers.get(0).getStatus());
+            assertNull(containers.get(0).getConfig());
+        }
+    }
 }
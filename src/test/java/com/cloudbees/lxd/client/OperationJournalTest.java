@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperationJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pendingOperationsSurviveReopenTest() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("operations.journal");
+
+        try (OperationJournal journal = OperationJournal.open(path)) {
+            journal.started("op-1", "/1.0/operations/op-1", "/1.0/containers/c1");
+            journal.started("op-2", "/1.0/operations/op-2", "/1.0/containers/c2");
+            journal.finished("op-1");
+        }
+
+        try (OperationJournal journal = OperationJournal.open(path)) {
+            List<OperationJournal.Entry> pending = journal.pending();
+            assertEquals(1, pending.size());
+            assertEquals("op-2", pending.get(0).getId());
+            assertEquals("/1.0/operations/op-2", pending.get(0).getOperationUrl());
+            assertEquals("/1.0/containers/c2", pending.get(0).getResource());
+        }
+    }
+
+    @Test
+    public void closedJournalIgnoresRecordsTest() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("operations.journal");
+
+        OperationJournal journal = OperationJournal.open(path);
+        journal.started("op-1", "/1.0/operations/op-1", "/1.0/containers/c1");
+        journal.close();
+        // late callbacks of in-flight operations
+        journal.started("op-2", "/1.0/operations/op-2", "/1.0/containers/c2");
+        journal.finished("op-1");
+
+        try (OperationJournal reopened = OperationJournal.open(path)) {
+            assertEquals(1, reopened.pending().size());
+            assertEquals("op-1", reopened.pending().get(0).getId());
+        }
+    }
+
+    @Test
+    public void journalIsCompactedWhenFullTest() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("operations.journal");
+
+        try (OperationJournal journal = OperationJournal.open(path)) {
+            for (int i = 0; i < 10000; i++) {
+                journal.started("op-" + i, "/1.0/operations/op-" + i, "/1.0/containers/c" + i);
+                if (i > 0) {
+                    journal.finished("op-" + (i - 1));
+                }
+            }
+        }
+        assertTrue(Files.size(path) <= OperationJournal.INITIAL_SIZE);
+
+        try (OperationJournal journal = OperationJournal.open(path)) {
+            assertEquals(1, journal.pending().size());
+            assertEquals("op-9999", journal.pending().get(0).getId());
+        }
+    }
+}
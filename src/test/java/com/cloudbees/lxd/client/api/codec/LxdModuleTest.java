@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import com.cloudbees.lxd.client.api.Container;
+import com.cloudbees.lxd.client.api.Image;
+import com.cloudbees.lxd.client.api.LxdResponse;
+import com.cloudbees.lxd.client.api.Operation;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LxdModuleTest {
+
+    // same date parsing on both sides, StdDateFormat reads nanoseconds as milliseconds
+    final ObjectMapper reflective = new ObjectMapper()
+        .registerModule(new SimpleModule().addDeserializer(Date.class, new Rfc3339DateDeserializer()))
+        .enable(DeserializationFeature.UNWRAP_SINGLE_VALUE_ARRAYS)
+        .disable(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES)
+        .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+    final ObjectMapper streaming = reflective.copy().registerModule(new LxdModule());
+
+    @Test
+    public void imagesTest() throws IOException {
+        assertSameAsReflective("listImages.json", new TypeReference<LxdResponse<List<Image>>>() {});
+    }
+
+    @Test
+    public void containerTest() throws IOException {
+        assertSameAsReflective("operations/start/container.json", new TypeReference<LxdResponse<Container>>() {});
+    }
+
+    @Test
+    public void operationsTest() throws IOException {
+        assertSameAsReflective("operations/init/operations-progress-10.json", new TypeReference<LxdResponse<Map<String, List<Operation>>>>() {});
+    }
+
+    @Test
+    public void operationTimestampsTest() throws IOException {
+        Operation operation = streaming.readValue("{\"id\": \"1\", \"updated_at\": \"2016-11-18T13:01:25.679471689Z\"}", Operation.class);
+
+        assertEquals(Instant.parse("2016-11-18T13:01:25.679471689Z"), operation.getUpdatedAtInstant());
+        assertEquals(Instant.parse("2016-11-18T13:01:25.679Z"), operation.getUpdatedAt().toInstant());
+    }
+
+    @Test
+    public void canonicalizationTest() throws IOException {
+        TypeReference<LxdResponse<List<Container>>> type = new TypeReference<LxdResponse<List<Container>>>() {};
+        List<Container> containers;
+        try (InputStream in = LxdModuleTest.class.getResourceAsStream("/com/cloudbees/lxd/client/containers.json")) {
+            LxdResponse<List<Container>> response = streaming.readerFor(type)
+                .withAttribute(StringCanonicalizer.class, new StringCanonicalizer(4096))
+                .readValue(in);
+            containers = response.getData();
+        }
+        Container first = containers.get(0);
+        Container second = containers.get(1);
+
+        assertSame(first.getArchitecture(), second.getArchitecture());
+        assertSame(first.getProfiles().get(0), second.getProfiles().get(0));
+        String key = first.getConfig().keySet().iterator().next();
+        assertSame(first.getConfig().get(key), second.getConfig().get(key));
+        // values are still the same as without canonicalization
+        LxdResponse<?> expected = (LxdResponse<?>) read(reflective, "containers.json", type);
+        assertEquals(reflective.writeValueAsString(expected.getData()), reflective.writeValueAsString(containers));
+    }
+
+    private void assertSameAsReflective(String resource, TypeReference<?> type) throws IOException {
+        Object expected = read(reflective, resource, type);
+        Object actual = read(streaming, resource, type);
+
+        // compare what is serialized back, the models don't implement equals
+        assertEquals(reflective.writeValueAsString(expected), reflective.writeValueAsString(actual));
+    }
+
+    private static Object read(ObjectMapper mapper, String resource, TypeReference<?> type) throws IOException {
+        try (InputStream in = LxdModuleTest.class.getResourceAsStream("/com/cloudbees/lxd/client/" + resource)) {
+            return mapper.readValue(in, type);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.api.codec;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class Rfc3339Test {
+
+    @Test
+    public void validTimestampsTest() {
+        for (String text : new String[] {
+            "2016-11-18T13:01:25.679471689Z",
+            "2016-11-18T13:01:25Z",
+            "2016-11-18T13:01:25.5Z",
+            "2016-02-29T23:59:59.999999999+01:00",
+            "2017-01-01T00:00:00-05:30",
+            "0001-01-01T00:00:00Z",
+            "1969-12-31T23:59:59.1z",
+        }) {
+            Instant expected = OffsetDateTime.parse(text.replace('z', 'Z')).toInstant();
+            assertEquals(text, expected, Rfc3339.parseInstant(text));
+
+            char[] chars = ("\"" + text + "\"").toCharArray();
+            assertEquals(text, expected.toEpochMilli(), Rfc3339.parseEpochMillis(chars, 1, text.length()));
+        }
+    }
+
+    @Test
+    public void extraFractionDigitsAreDropped() {
+        assertEquals(Instant.parse("2016-11-18T13:01:25.123456789Z"), Rfc3339.parseInstant("2016-11-18T13:01:25.1234567891Z"));
+    }
+
+    @Test
+    public void invalidTimestampsTest() {
+        for (String text : new String[] {
+            "",
+            "2016-11-18",
+            "2016-11-18T13:01:25",
+            "2016-11-18T13:01:25.Z",
+            "2016-11-18T13:01:25.123",
+            "2016-02-30T13:01:25Z",
+            "2016-11-18T24:01:25Z",
+            "2016-11-18T13:01:60Z",
+            "2016-11-18T13:01:25+0100",
+            "2016-11-18T13:01:25Zjunk",
+            "2016/11/18T13:01:25Z",
+            "2016-1a-18T13:01:25Z",
+        }) {
+            assertNull(text, Rfc3339.parseInstant(text));
+        }
+    }
+}
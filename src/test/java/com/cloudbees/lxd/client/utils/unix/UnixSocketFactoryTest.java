@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.cloudbees.lxd.client.utils.unix;
+
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UnixSocketFactoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File socketFile;
+    UnixServerSocketChannel server;
+
+    @Before
+    public void setUp() throws IOException {
+        socketFile = new File(folder.getRoot(), "test.socket");
+        server = UnixServerSocketChannel.open();
+        server.socket().bind(new UnixSocketAddress(socketFile));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void echoTest() throws Exception {
+        AtomicReference<IOException> serverError = new AtomicReference<>();
+        Thread echo = new Thread(() -> {
+            try (UnixSocketChannel channel = server.accept()) {
+                ByteBuffer buffer = ByteBuffer.allocate(64);
+                while (channel.read(buffer) >= 0 && buffer.position() < 5) {
+                    // read the whole message
+                }
+                buffer.flip();
+                channel.write(buffer);
+            } catch (IOException e) {
+                serverError.set(e);
+            }
+        });
+        echo.start();
+
+        try (Socket socket = new UnixSocketFactory(socketFile.getAbsolutePath()).createSocket()) {
+            // like OkHttp, pass a dummy address as the socket knows its path
+            socket.connect(InetSocketAddress.createUnresolved("localhost", 80), 1000);
+
+            OutputStream out = socket.getOutputStream();
+            out.write("hello".getBytes("UTF-8"));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] received = new byte[5];
+            int read = 0;
+            while (read < received.length) {
+                int n = in.read(received, read, received.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            assertEquals("hello", new String(received, 0, read, "UTF-8"));
+        }
+        echo.join();
+        assertNull(serverError.get());
+    }
+
+    @Test
+    public void readTimeoutTest() throws Exception {
+        // the server accepts the connection but never answers
+        AtomicReference<UnixSocketChannel> accepted = new AtomicReference<>();
+        AtomicReference<IOException> serverError = new AtomicReference<>();
+        Thread accept = new Thread(() -> {
+            try {
+                accepted.set(server.accept());
+            } catch (IOException e) {
+                serverError.set(e);
+            }
+        });
+        accept.start();
+
+        try (Socket socket = new UnixSocketFactory(socketFile.getAbsolutePath()).createSocket()) {
+            socket.connect(InetSocketAddress.createUnresolved("localhost", 80), 1000);
+            socket.setSoTimeout(200);
+
+            long start = System.currentTimeMillis();
+            try {
+                socket.getInputStream().read(new byte[16]);
+                fail();
+            } catch (SocketTimeoutException e) {
+                assertTrue(System.currentTimeMillis() - start < 5000);
+            }
+        }
+        accept.join();
+        assertNull(serverError.get());
+        accepted.get().close();
+    }
+}